@@ -0,0 +1,102 @@
+package com.myfirstJavalin.benchmark;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Runs the JMH benchmarks and writes the results as JSON, one file per release
+ * (-Dbench.output, default jmh-results.json). With -Dbench.baseline=previous.json the
+ * scores are compared against an earlier result file; benchmarks that got slower by more than
+ * -Dbench.regressionPercent (default 10) are listed and the runner exits with status 2.
+ * Arguments are regular expressions selecting benchmarks, e.g. "Xmi" or "TranscriptParsing.parseSrt".
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        Path output = Paths.get(System.getProperty("bench.output", "jmh-results.json"));
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .resultFormat(ResultFormatType.JSON)
+                .result(output.toString())
+                .jvmArgsAppend(forwardedProperties());
+        if (args.length == 0) {
+            options.include("com\\.myfirstJavalin\\..*Benchmark");
+        }
+        for (String pattern : args) {
+            options.include(pattern);
+        }
+        new Runner(options.build()).run();
+        System.out.println("JMH results written to " + output.toAbsolutePath());
+
+        String baseline = System.getProperty("bench.baseline");
+        if (baseline != null) {
+            double threshold = Double.parseDouble(System.getProperty("bench.regressionPercent", "10"));
+            int regressions = compare(Paths.get(baseline), output, threshold);
+            if (regressions > 0) {
+                System.exit(2);
+            }
+        }
+    }
+
+    /**
+     * Prints the change of every benchmark present in both files. All benchmarks run in
+     * average-time mode, so a higher score is slower.
+     *
+     * @return number of benchmarks slower than the threshold
+     */
+    static int compare(Path baselineFile, Path currentFile, double thresholdPercent) throws Exception {
+        Map<String, Double> baseline = scores(baselineFile);
+        Map<String, Double> current = scores(currentFile);
+        int regressions = 0;
+        System.out.printf("%-90s %12s %12s %8s%n", "Benchmark", "baseline", "current", "change");
+        for (Map.Entry<String, Double> entry : current.entrySet()) {
+            Double before = baseline.get(entry.getKey());
+            if (before == null || before == 0) {
+                continue;
+            }
+            double change = (entry.getValue() - before) / before * 100;
+            boolean regression = change > thresholdPercent;
+            if (regression) {
+                regressions++;
+            }
+            System.out.printf("%-90s %12.3f %12.3f %+7.1f%%%s%n", entry.getKey(), before, entry.getValue(), change,
+                    regression ? "  REGRESSION" : "");
+        }
+        return regressions;
+    }
+
+    private static Map<String, Double> scores(Path file) throws Exception {
+        JSONArray results = new JSONArray(Files.readString(file, StandardCharsets.UTF_8));
+        Map<String, Double> scores = new LinkedHashMap<>();
+        for (int i = 0; i < results.length(); i++) {
+            JSONObject result = results.getJSONObject(i);
+            String key = result.getString("benchmark");
+            JSONObject params = result.optJSONObject("params");
+            if (params != null) {
+                key += params.toMap().toString();
+            }
+            scores.put(key, result.getJSONObject("primaryMetric").getDouble("score"));
+        }
+        return scores;
+    }
+
+    /**
+     * Passes bench.* settings such as bench.protocol on to the forked benchmark JVMs.
+     */
+    private static String[] forwardedProperties() {
+        return System.getProperties().stringPropertyNames().stream()
+                .filter(key -> key.startsWith("bench."))
+                .map(key -> "-D" + key + "=" + System.getProperty(key))
+                .toArray(String[]::new);
+    }
+}
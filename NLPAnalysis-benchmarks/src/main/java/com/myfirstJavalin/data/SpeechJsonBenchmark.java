@@ -0,0 +1,61 @@
+package com.myfirstJavalin.data;
+
+import org.bson.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON conversion of a speech as served by the REST API, on a speech document
+ * shaped like the ones {@link com.myfirstJavalin.speech.SpeechHandler} stores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SpeechJsonBenchmark {
+    private SpeechDBImpl speech;
+
+    @Setup
+    public void setup() {
+        List<Document> textContent = new ArrayList<>();
+        StringBuilder fullText = new StringBuilder();
+        for (int i = 0; i < 40; i++) {
+            String paragraph = "Sehr geehrte Frau Präsidentin! Liebe Kolleginnen und Kollegen, der Antrag " + i
+                    + " betrifft den Haushalt und die Zukunft der Menschen in Deutschland.";
+            textContent.add(new Document("id", "ID201000001-" + i)
+                    .append("speaker", "11004000")
+                    .append("text", paragraph)
+                    .append("type", i % 6 == 5 ? "comment" : "text"));
+            fullText.append(paragraph).append(' ');
+        }
+
+        speech = new SpeechDBImpl(new Document("_id", "ID201000001")
+                .append("speaker", "11004000")
+                .append("FullSpeechText", fullText.toString().trim())
+                .append("protocol", new Document("wp", 20).append("index", 100).append("place", "Berlin")
+                        .append("date", 1684188000000L).append("title", "100. Sitzung"))
+                .append("agenda", new Document("_id", "agenda-1").append("index", "Tagesordnungspunkt 1")
+                        .append("title", "Tagesordnungspunkt 1").append("content", "Beratung des Antrags"))
+                .append("textContent", textContent)
+                .append("comments", List.of(new Document("text", "(Beifall bei der SPD)"))));
+    }
+
+    @Benchmark
+    public String toJSON() {
+        return speech.toJSON().toString();
+    }
+}
@@ -0,0 +1,54 @@
+package com.myfirstJavalin.nlp;
+
+import com.myfirstJavalin.data.AnnotationCodec;
+import org.apache.uima.jcas.JCas;
+import org.bson.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Extraction of the annotations of a processed speech, the work of
+ * NLPProcessor.extractAnnotations (delegating to {@link AnnotationExtractor}),
+ * and the optional columnar encoding of the result.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AnnotationExtractionBenchmark {
+    @Param({"200", "2000"})
+    public int sentences;
+
+    private JCas jCas;
+    private Document extracted;
+    private final AnnotationExtractor extractor = new AnnotationExtractor();
+
+    @Setup
+    public void setup() throws Exception {
+        jCas = BenchmarkCases.annotatedSpeech(sentences);
+        extracted = extractor.extract(jCas);
+    }
+
+    @Benchmark
+    public Document extractAnnotations() {
+        return extractor.extract(jCas);
+    }
+
+    @Benchmark
+    public Document encodeColumnar() {
+        return AnnotationCodec.encode(extracted);
+    }
+}
@@ -0,0 +1,72 @@
+package com.myfirstJavalin.nlp;
+
+import org.apache.uima.fit.factory.TypeSystemDescriptionFactory;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.resource.metadata.TypeSystemDescription;
+import org.apache.uima.util.CasCreationUtils;
+
+import java.util.Random;
+
+/**
+ * Builds the CASes the NLP benchmarks work on: a synthetic German speech annotated
+ * the way the three DUUI components annotate it, using the {@link FakeDuuiComponent} annotators.
+ */
+final class BenchmarkCases {
+    private static final String[] WORDS = {"der", "die", "das", "und", "nicht", "wir", "Sie", "haben", "werden",
+            "Bundesregierung", "Antrag", "Haushalt", "Kolleginnen", "Kollegen", "Deutschland", "Europa", "Gesetz",
+            "Menschen", "Zukunft", "Verantwortung", "Klimaschutz", "Wirtschaft", "Bildung", "Rente", "Pflege",
+            "müssen", "sollten", "heute", "wichtig", "gemeinsam", "deshalb", "Milliarden", "Euro", "2024"};
+
+    private static TypeSystemDescription typeSystem;
+
+    private BenchmarkCases() {
+    }
+
+    static synchronized TypeSystemDescription typeSystem() throws Exception {
+        if (typeSystem == null) {
+            typeSystem = TypeSystemDescriptionFactory.createTypeSystemDescription();
+        }
+        return typeSystem;
+    }
+
+    /**
+     * @return an empty CAS with the project type system
+     */
+    static JCas emptyCas() throws Exception {
+        return CasCreationUtils.createCas(typeSystem(), null, null).getJCas();
+    }
+
+    /**
+     * @param sentences number of sentences of the speech
+     * @return a CAS holding the speech with sentences, tokens, dependencies, entities, sentiments and topics
+     */
+    static JCas annotatedSpeech(int sentences) throws Exception {
+        JCas jCas = emptyCas();
+        jCas.setDocumentText(speechText(sentences, 42L));
+        jCas.setDocumentLanguage("de");
+        for (FakeDuuiComponent.Kind kind : FakeDuuiComponent.Kind.values()) {
+            FakeDuuiComponent.annotate(kind, jCas);
+        }
+        return jCas;
+    }
+
+    /**
+     * @return a reproducible speech text of the given number of sentences
+     */
+    static String speechText(int sentences, long seed) {
+        Random random = new Random(seed);
+        StringBuilder text = new StringBuilder(sentences * 120);
+        for (int s = 0; s < sentences; s++) {
+            int words = 6 + random.nextInt(20);
+            for (int w = 0; w < words; w++) {
+                String word = WORDS[random.nextInt(WORDS.length)];
+                if (w == 0) {
+                    word = Character.toUpperCase(word.charAt(0)) + word.substring(1);
+                }
+                text.append(word).append(w + 1 < words ? " " : "");
+            }
+            text.append(random.nextInt(8) == 0 ? "! " : ". ");
+        }
+        return text.toString().trim();
+    }
+}
@@ -0,0 +1,112 @@
+package com.myfirstJavalin.nlp;
+
+import org.bson.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sentence segmentation and timestamp parsing of video transcripts in {@link VideoNLPProcessor},
+ * on a transcript of about half an hour of speech in each of the supported formats.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TranscriptParsingBenchmark {
+    private static final int SEGMENTS = 400;
+
+    private String text;
+    private String srt;
+    private String speakerFormat;
+    private String lineFormat;
+    private String json;
+    private String[] times;
+
+    @Setup
+    public void setup() {
+        text = BenchmarkCases.speechText(SEGMENTS, 7L);
+        String[] sentences = text.split("(?<=[.!?]) ");
+
+        StringBuilder srtBuilder = new StringBuilder();
+        StringBuilder speakerBuilder = new StringBuilder();
+        StringBuilder lineBuilder = new StringBuilder();
+        StringBuilder jsonBuilder = new StringBuilder("{\"text\":\"\",\"language\":\"de\",\"segments_with_timeStamps\":[");
+        times = new String[sentences.length];
+        double start = 0;
+        for (int i = 0; i < sentences.length; i++) {
+            double end = start + 2.5 + sentences[i].length() * 0.05;
+            srtBuilder.append(i + 1).append('\n')
+                    .append(srtTime(start)).append(" --> ").append(srtTime(end)).append('\n')
+                    .append(sentences[i]).append("\n\n");
+            speakerBuilder.append(String.format(Locale.ROOT, "[speaker_0 %.2fs - %.2fs] %s%n", start, end, sentences[i]));
+            lineBuilder.append(hms(start)).append(' ').append(sentences[i]).append('\n');
+            jsonBuilder.append(i > 0 ? "," : "")
+                    .append(String.format(Locale.ROOT, "{\"id\":%d,\"start\":%.2f,\"end\":%.2f,\"text\":\"%s\"}",
+                            i, start, end, sentences[i].replace("\"", "")));
+            times[i] = srtTime(start);
+            start = end;
+        }
+        srt = srtBuilder.toString();
+        speakerFormat = speakerBuilder.toString();
+        lineFormat = lineBuilder.toString();
+        json = jsonBuilder.append("]}").toString();
+    }
+
+    @Benchmark
+    public List<Document> segmentTextIntoSentences() {
+        return VideoNLPProcessor.segmentTextIntoSentences(text);
+    }
+
+    @Benchmark
+    public Document parseSrt() {
+        return VideoNLPProcessor.parseSRTOrVTTFormat(srt, text);
+    }
+
+    @Benchmark
+    public Document parseSpeakerTimestamps() {
+        return VideoNLPProcessor.parseSpeakerTimestampFormat(speakerFormat, text);
+    }
+
+    @Benchmark
+    public Document parseLineTimestamps() {
+        return VideoNLPProcessor.parseLineByLineTimestamps(lineFormat, text);
+    }
+
+    @Benchmark
+    public Document parseJsonTranscript() {
+        return VideoNLPProcessor.parseJsonTranscript(json);
+    }
+
+    @Benchmark
+    public void parseTimeToSeconds(Blackhole blackhole) {
+        for (String time : times) {
+            blackhole.consume(VideoNLPProcessor.parseTimeToSeconds(time));
+        }
+    }
+
+    private static String srtTime(double seconds) {
+        long millis = Math.round(seconds * 1000);
+        return String.format(Locale.ROOT, "%02d:%02d:%02d,%03d",
+                millis / 3_600_000, millis / 60_000 % 60, millis / 1000 % 60, millis % 1000);
+    }
+
+    private static String hms(double seconds) {
+        long whole = (long) seconds;
+        return String.format(Locale.ROOT, "%02d:%02d:%02d", whole / 3600, whole / 60 % 60, whole % 60);
+    }
+}
@@ -0,0 +1,59 @@
+package com.myfirstJavalin.nlp;
+
+import org.apache.uima.cas.impl.XmiCasDeserializer;
+import org.apache.uima.cas.impl.XmiCasSerializer;
+import org.apache.uima.jcas.JCas;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * XMI serialization and deserialization of an annotated speech, as done when CAS files are stored and reloaded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class XmiSerializationBenchmark {
+    @Param({"200", "2000"})
+    public int sentences;
+
+    private JCas annotated;
+    private JCas target;
+    private byte[] xmi;
+
+    @Setup
+    public void setup() throws Exception {
+        annotated = BenchmarkCases.annotatedSpeech(sentences);
+        target = BenchmarkCases.emptyCas();
+        xmi = serializeXmi();
+    }
+
+    @Benchmark
+    public byte[] serializeXmi() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(xmi != null ? xmi.length : 1 << 16);
+        XmiCasSerializer.serialize(annotated.getCas(), out);
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public JCas deserializeXmi() throws Exception {
+        target.reset();
+        XmiCasDeserializer.deserialize(new ByteArrayInputStream(xmi), target.getCas(), true);
+        return target;
+    }
+}
@@ -0,0 +1,119 @@
+package com.myfirstJavalin.speech;
+
+import org.bson.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SAX parsing of a plenary protocol with {@link SpeechHandler}, as done by {@link FromXMLtoMongo}.
+ * Pass a downloaded protocol with -Dbench.protocol=path/to/protocol.xml; without it a synthetic
+ * protocol with the element structure and size of a regular sitting is generated.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SpeechHandlerBenchmark {
+    private byte[] protocol;
+    private SAXParser parser;
+
+    @Setup
+    public void setup() throws Exception {
+        String protocolPath = System.getProperty("bench.protocol");
+        protocol = protocolPath != null
+                ? Files.readAllBytes(Paths.get(protocolPath))
+                : syntheticProtocol(150, 30, 42L).getBytes(StandardCharsets.UTF_8);
+
+        SAXParserFactory factory = SAXParserFactory.newInstance();
+        // Downloaded protocols reference their DTD; it is not needed for parsing
+        factory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+        parser = factory.newSAXParser();
+    }
+
+    @Benchmark
+    public List<Document> parseProtocol() throws Exception {
+        SpeechHandler handler = new SpeechHandler();
+        parser.reset();
+        parser.parse(new ByteArrayInputStream(protocol), handler);
+        return handler.getAllSpeeches();
+    }
+
+    /**
+     * Builds a protocol in the dbtplenarprotokoll layout: head data, a table of contents
+     * and speeches made of paragraphs and comments.
+     */
+    static String syntheticProtocol(int speeches, int paragraphsPerSpeech, long seed) {
+        Random random = new Random(seed);
+        StringBuilder xml = new StringBuilder(speeches * paragraphsPerSpeech * 400)
+                .append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+                .append("<dbtplenarprotokoll wahlperiode=\"20\" sitzung-nr=\"100\">\n")
+                .append("<vorspann><kopfdaten><plenarprotokoll-nummer>Plenarprotokoll <wahlperiode>20</wahlperiode>/")
+                .append("<sitzungsnr>100</sitzungsnr></plenarprotokoll-nummer>")
+                .append("<veranstaltungsdaten><ort>Berlin</ort>, <datum date=\"16.05.2023\">Dienstag, den 16. Mai 2023</datum>")
+                .append("</veranstaltungsdaten><sitzungstitel><sitzungsnr>100</sitzungsnr>. Sitzung</sitzungstitel></kopfdaten>\n")
+                .append("<inhaltsverzeichnis>");
+        for (int top = 1; top <= 20; top++) {
+            xml.append("<ivz-block><ivz-block-titel>Tagesordnungspunkt ").append(top).append(":</ivz-block-titel>")
+                    .append("<ivz-eintrag><ivz-eintrag-inhalt>").append(sentence(random)).append("</ivz-eintrag-inhalt></ivz-eintrag></ivz-block>");
+        }
+        xml.append("</inhaltsverzeichnis></vorspann>\n<sitzungsverlauf>\n");
+
+        for (int s = 0; s < speeches; s++) {
+            if (s % 8 == 0) {
+                xml.append("<tagesordnungspunkt top-id=\"Tagesordnungspunkt ").append(s / 8 + 1).append("\">\n");
+            }
+            xml.append("<rede id=\"ID20100").append(String.format("%04d", s)).append("\">\n")
+                    .append("<p klasse=\"redner\"><redner id=\"1100").append(4000 + random.nextInt(700)).append("\"><name>")
+                    .append("<vorname>Max</vorname><nachname>Mustermann").append(s).append("</nachname>")
+                    .append("<fraktion>SPD</fraktion></name></redner>Max Mustermann (SPD):</p>\n");
+            for (int p = 0; p < paragraphsPerSpeech; p++) {
+                xml.append("<p klasse=\"J\">");
+                int sentences = 2 + random.nextInt(4);
+                for (int i = 0; i < sentences; i++) {
+                    xml.append(sentence(random)).append(' ');
+                }
+                xml.append("</p>\n");
+                if (random.nextInt(5) == 0) {
+                    xml.append("<kommentar>(Beifall bei der SPD)</kommentar>\n");
+                }
+            }
+            xml.append("</rede>\n");
+            if (s % 8 == 7 || s == speeches - 1) {
+                xml.append("</tagesordnungspunkt>\n");
+            }
+        }
+        return xml.append("</sitzungsverlauf>\n</dbtplenarprotokoll>\n").toString();
+    }
+
+    private static final String[] WORDS = {"wir", "die", "Bundesregierung", "haben", "den", "Antrag", "heute",
+            "beraten", "und", "Menschen", "in", "Deutschland", "brauchen", "Sicherheit", "für", "Zukunft", "Haushalt"};
+
+    private static String sentence(Random random) {
+        StringBuilder sentence = new StringBuilder("Meine Damen und Herren,");
+        int words = 5 + random.nextInt(15);
+        for (int i = 0; i < words; i++) {
+            sentence.append(' ').append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return sentence.append('.').toString();
+    }
+}
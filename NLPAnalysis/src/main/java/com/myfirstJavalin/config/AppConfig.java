@@ -15,9 +15,22 @@ public class AppConfig {
             }
             properties.load(input);
         }
+        applySystemOverrides();
         validateRequiredProperties();
     }
 
+    /**
+     * JVM system properties (-Dkey=value) override keys of config.properties and any nlp.* key,
+     * e.g. to point the NLP components and the database elsewhere for a benchmark.
+     */
+    private void applySystemOverrides() {
+        for (String key : System.getProperties().stringPropertyNames()) {
+            if (properties.containsKey(key) || key.startsWith("nlp.")) {
+                properties.setProperty(key, System.getProperty(key));
+            }
+        }
+    }
+
     private void validateRequiredProperties() {
         String[] required = {
                 "mongo.uri", "mongo.database", "mongo.username", "mongo.password",
@@ -0,0 +1,320 @@
+package com.myfirstJavalin.data;
+
+import org.bson.Document;
+import org.bson.types.Binary;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converts the token, sentence and dependency annotations of a speech between the row layout
+ * (one sub-document per annotation) and a compact columnar layout.
+ * In the columnar layout every field is a parallel array: begin offsets are delta-encoded
+ * against the previous annotation, lengths replace end offsets, both packed as varints into
+ * a binary field, and POS and dependency labels are stored as codes into a label dictionary.
+ * Lemmas equal to the token text are not stored, a bit set marks them.
+ * Named entities, sentiments and topics are small and stay in the row layout.
+ */
+public final class AnnotationCodec {
+    public static final String FORMAT = "columnar-v1";
+
+    private AnnotationCodec() {
+    }
+
+    /**
+     * Encodes the extracted annotations into the columnar layout.
+     *
+     * @param annotations annotations in the row layout as produced by the extraction
+     * @return a new document with token, sentence and dependency columns; other fields are copied
+     */
+    @SuppressWarnings("unchecked")
+    public static Document encode(Document annotations) {
+        Document encoded = new Document(annotations);
+        encoded.put("token", encodeTokens((List<Document>) annotations.get("token", List.class)));
+        encoded.put("sentence", encodeSentences((List<Document>) annotations.get("sentence", List.class)));
+        encoded.put("dependency", encodeDependencies((List<Document>) annotations.get("dependency", List.class)));
+        encoded.put("annotationFormat", FORMAT);
+        return encoded;
+    }
+
+    private static Document encodeTokens(List<Document> tokens) {
+        if (tokens == null) {
+            tokens = List.of();
+        }
+        LabelDictionary posLabels = new LabelDictionary();
+        OffsetColumns offsets = new OffsetColumns();
+        VarIntWriter posCodes = new VarIntWriter();
+        List<String> texts = new ArrayList<>(tokens.size());
+        List<String> lemmas = new ArrayList<>(tokens.size());
+        byte[] lemmaIsText = new byte[(tokens.size() + 7) / 8];
+
+        for (Document token : tokens) {
+            offsets.add(token.getInteger("begin"), token.getInteger("end"));
+            posCodes.write(posLabels.code(token.getString("pos")));
+            String text = token.getString("text");
+            String lemma = token.getString("lemmaValue");
+            if (lemma != null && lemma.equals(text)) {
+                lemmaIsText[texts.size() / 8] |= (byte) (1 << (texts.size() % 8));
+                lemmas.add(null);
+            } else {
+                lemmas.add(lemma);
+            }
+            texts.add(text);
+        }
+
+        return new Document("count", tokens.size())
+                .append("begin", offsets.begins())
+                .append("length", offsets.lengths())
+                .append("text", texts)
+                .append("lemma", lemmas)
+                .append("lemmaIsText", new Binary(lemmaIsText))
+                .append("posLabels", posLabels.labels())
+                .append("pos", new Binary(posCodes.toByteArray()));
+    }
+
+    private static Document encodeSentences(List<Document> sentences) {
+        if (sentences == null) {
+            sentences = List.of();
+        }
+        OffsetColumns offsets = new OffsetColumns();
+        VarIntWriter tokenCounts = new VarIntWriter();
+        List<String> texts = new ArrayList<>(sentences.size());
+
+        for (Document sentence : sentences) {
+            offsets.add(sentence.getInteger("begin"), sentence.getInteger("end"));
+            tokenCounts.write(sentence.getInteger("tokenCount", 0));
+            texts.add(sentence.getString("text"));
+        }
+
+        return new Document("count", sentences.size())
+                .append("begin", offsets.begins())
+                .append("length", offsets.lengths())
+                .append("text", texts)
+                .append("tokenCount", new Binary(tokenCounts.toByteArray()));
+    }
+
+    private static Document encodeDependencies(List<Document> dependencies) {
+        if (dependencies == null) {
+            dependencies = List.of();
+        }
+        LabelDictionary typeLabels = new LabelDictionary();
+        OffsetColumns offsets = new OffsetColumns();
+        VarIntWriter typeCodes = new VarIntWriter();
+        List<String> texts = new ArrayList<>(dependencies.size());
+
+        for (Document dependency : dependencies) {
+            offsets.add(dependency.getInteger("begin"), dependency.getInteger("end"));
+            typeCodes.write(typeLabels.code(dependency.getString("dependencyType")));
+            texts.add(dependency.getString("text"));
+        }
+
+        return new Document("count", dependencies.size())
+                .append("begin", offsets.begins())
+                .append("length", offsets.lengths())
+                .append("text", texts)
+                .append("typeLabels", typeLabels.labels())
+                .append("type", new Binary(typeCodes.toByteArray()));
+    }
+
+    /**
+     * Returns the tokens of an annotations document in the row layout, whichever layout it is stored in.
+     *
+     * @param annotations document holding the annotation fields, e.g. a speech
+     * @return tokens with lemmaValue, pos, text, begin and end
+     */
+    @SuppressWarnings("unchecked")
+    public static List<Document> decodeTokens(Document annotations) {
+        Object stored = annotations.get("token");
+        if (!(stored instanceof Document)) {
+            return stored instanceof List ? (List<Document>) stored : List.of();
+        }
+
+        Document columns = (Document) stored;
+        int count = columns.getInteger("count");
+        int[][] offsets = decodeOffsets(columns, count);
+        int[] pos = readVarInts(columns.get("pos", Binary.class), count);
+        List<String> posLabels = columns.getList("posLabels", String.class);
+        List<String> texts = columns.getList("text", String.class);
+        List<String> lemmas = columns.getList("lemma", String.class);
+        byte[] lemmaIsText = columns.get("lemmaIsText", Binary.class).getData();
+
+        List<Document> tokens = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String text = texts.get(i);
+            boolean sameAsText = (lemmaIsText[i / 8] & (1 << (i % 8))) != 0;
+            tokens.add(new Document()
+                    .append("lemmaValue", sameAsText ? text : lemmas.get(i))
+                    .append("pos", label(posLabels, pos[i]))
+                    .append("text", text)
+                    .append("begin", offsets[0][i])
+                    .append("end", offsets[1][i]));
+        }
+        return tokens;
+    }
+
+    /**
+     * Returns the sentences of an annotations document in the row layout.
+     *
+     * @param annotations document holding the annotation fields
+     * @return sentences with text, begin, end and tokenCount
+     */
+    @SuppressWarnings("unchecked")
+    public static List<Document> decodeSentences(Document annotations) {
+        Object stored = annotations.get("sentence");
+        if (!(stored instanceof Document)) {
+            return stored instanceof List ? (List<Document>) stored : List.of();
+        }
+
+        Document columns = (Document) stored;
+        int count = columns.getInteger("count");
+        int[][] offsets = decodeOffsets(columns, count);
+        int[] tokenCounts = readVarInts(columns.get("tokenCount", Binary.class), count);
+        List<String> texts = columns.getList("text", String.class);
+
+        List<Document> sentences = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            sentences.add(new Document()
+                    .append("text", texts.get(i))
+                    .append("begin", offsets[0][i])
+                    .append("end", offsets[1][i])
+                    .append("tokenCount", tokenCounts[i]));
+        }
+        return sentences;
+    }
+
+    /**
+     * Returns the dependencies of an annotations document in the row layout.
+     *
+     * @param annotations document holding the annotation fields
+     * @return dependencies with dependencyType, text, begin and end
+     */
+    @SuppressWarnings("unchecked")
+    public static List<Document> decodeDependencies(Document annotations) {
+        Object stored = annotations.get("dependency");
+        if (!(stored instanceof Document)) {
+            return stored instanceof List ? (List<Document>) stored : List.of();
+        }
+
+        Document columns = (Document) stored;
+        int count = columns.getInteger("count");
+        int[][] offsets = decodeOffsets(columns, count);
+        int[] types = readVarInts(columns.get("type", Binary.class), count);
+        List<String> typeLabels = columns.getList("typeLabels", String.class);
+        List<String> texts = columns.getList("text", String.class);
+
+        List<Document> dependencies = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            dependencies.add(new Document()
+                    .append("dependencyType", label(typeLabels, types[i]))
+                    .append("text", texts.get(i))
+                    .append("begin", offsets[0][i])
+                    .append("end", offsets[1][i]));
+        }
+        return dependencies;
+    }
+
+    private static int[][] decodeOffsets(Document columns, int count) {
+        int[] deltas = readVarInts(columns.get("begin", Binary.class), count);
+        int[] lengths = readVarInts(columns.get("length", Binary.class), count);
+        int[] begins = new int[count];
+        int[] ends = new int[count];
+        int previous = 0;
+        for (int i = 0; i < count; i++) {
+            begins[i] = previous + deltas[i];
+            ends[i] = begins[i] + lengths[i];
+            previous = begins[i];
+        }
+        return new int[][]{begins, ends};
+    }
+
+    private static String label(List<String> labels, int code) {
+        return code == 0 ? null : labels.get(code - 1);
+    }
+
+    private static int[] readVarInts(Binary binary, int count) {
+        byte[] data = binary.getData();
+        int[] values = new int[count];
+        int position = 0;
+        for (int i = 0; i < count; i++) {
+            int raw = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[position++];
+                raw |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            // zig-zag, so negative deltas of unordered input stay short
+            values[i] = (raw >>> 1) ^ -(raw & 1);
+        }
+        return values;
+    }
+
+    /**
+     * Begin and length columns of a list of spans.
+     */
+    private static final class OffsetColumns {
+        private final VarIntWriter begins = new VarIntWriter();
+        private final VarIntWriter lengths = new VarIntWriter();
+        private int previousBegin;
+
+        void add(int begin, int end) {
+            begins.write(begin - previousBegin);
+            lengths.write(end - begin);
+            previousBegin = begin;
+        }
+
+        Binary begins() {
+            return new Binary(begins.toByteArray());
+        }
+
+        Binary lengths() {
+            return new Binary(lengths.toByteArray());
+        }
+    }
+
+    /**
+     * Maps labels to codes; code 0 stands for a missing label.
+     */
+    private static final class LabelDictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> labels = new ArrayList<>();
+
+        int code(String label) {
+            if (label == null) {
+                return 0;
+            }
+            return codes.computeIfAbsent(label, key -> {
+                labels.add(key);
+                return labels.size();
+            });
+        }
+
+        List<String> labels() {
+            return labels;
+        }
+    }
+
+    /**
+     * Writes zig-zag encoded varints.
+     */
+    private static final class VarIntWriter {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        void write(int value) {
+            int raw = (value << 1) ^ (value >> 31);
+            while ((raw & ~0x7F) != 0) {
+                out.write((raw & 0x7F) | 0x80);
+                raw >>>= 7;
+            }
+            out.write(raw);
+        }
+
+        byte[] toByteArray() {
+            return out.toByteArray();
+        }
+    }
+}
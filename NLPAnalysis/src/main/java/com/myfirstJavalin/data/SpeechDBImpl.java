@@ -1,5 +1,6 @@
 package com.myfirstJavalin.data;
 
+import com.myfirstJavalin.database.AnnotationStore;
 import org.bson.Document;
 import org.jetbrains.annotations.NotNull;
 import org.json.JSONObject;
@@ -21,6 +22,7 @@ public class SpeechDBImpl implements Speech {
     private List<Objects> textContents = new ArrayList<>();
     private List<Objects> agenda;
     private final Document parliamentDocument;
+    private Document annotations;
 
     /**
      * Constructor to initialize the {@link SpeechDBImpl} with a MongoDB document.
@@ -29,6 +31,32 @@ public class SpeechDBImpl implements Speech {
      */
     public SpeechDBImpl(Document parliamentDocument) {
         this.parliamentDocument = parliamentDocument;
+        this.annotations = parliamentDocument;
+    }
+
+    /**
+     * Constructor for a speech whose annotations may be kept in the AnnotationStore.
+     * A speech written with nlp.annotations.store=separate only carries a summary and the
+     * annotationStorage reference; its tokens, sentences and dependencies are loaded from the store.
+     *
+     * @param parliamentDocument The MongoDB document containing speech data.
+     * @param annotationStore The store holding annotations kept outside the speech document.
+     */
+    public SpeechDBImpl(Document parliamentDocument, AnnotationStore annotationStore) {
+        this(parliamentDocument);
+        if (annotationStore != null && parliamentDocument.containsKey(AnnotationStore.STORAGE_FIELD)) {
+            setAnnotations(annotationStore.load(parliamentDocument.get("_id").toString()));
+        }
+    }
+
+    /**
+     * Attaches the annotations of the speech when they are kept outside the speech document,
+     * e.g. loaded through the AnnotationStore.
+     *
+     * @param annotations The annotations document.
+     */
+    public void setAnnotations(Document annotations) {
+        this.annotations = annotations != null ? annotations : parliamentDocument;
     }
 
     @Override
@@ -206,6 +234,33 @@ public class SpeechDBImpl implements Speech {
                 Objects.equals(getSpeakerID(), speech.getSpeakerID());
     }
 
+    /**
+     * Retrieves the tokens of the speech, decoded from the columnar layout if needed.
+     *
+     * @return tokens with lemmaValue, pos, text, begin and end, or an empty list if the speech is not annotated.
+     */
+    public List<Document> getTokens() {
+        return AnnotationCodec.decodeTokens(annotations);
+    }
+
+    /**
+     * Retrieves the sentences of the speech, decoded from the columnar layout if needed.
+     *
+     * @return sentences with text, begin, end and tokenCount, or an empty list if the speech is not annotated.
+     */
+    public List<Document> getSentences() {
+        return AnnotationCodec.decodeSentences(annotations);
+    }
+
+    /**
+     * Retrieves the dependencies of the speech, decoded from the columnar layout if needed.
+     *
+     * @return dependencies with dependencyType, text, begin and end, or an empty list if the speech is not annotated.
+     */
+    public List<Document> getDependencies() {
+        return AnnotationCodec.decodeDependencies(annotations);
+    }
+
     public List<Objects> getTextContents() {
         return textContents;
     }
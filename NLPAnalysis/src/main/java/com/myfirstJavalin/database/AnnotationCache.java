@@ -0,0 +1,128 @@
+package com.myfirstJavalin.database;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Updates;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of extracted annotations keyed by a content hash of the speech.
+ * The key covers the exact document text, its language and the set of pipeline
+ * components, so a re-ingested speech with identical text reuses the stored result
+ * instead of going through the remote components again.
+ * The text is hashed as annotated: annotation offsets refer to it, so any
+ * normalization that shifts characters would make cached offsets wrong.
+ * The cache holds no copy of the annotations. Every entry of the AnnotationStore records the key
+ * it was produced for; that entry survives a re-ingestion that replaces the speech document, so
+ * a re-ingested speech with unchanged text finds its own earlier annotations. Annotations kept
+ * inline on a speech are found through the annotationHash of another processed speech.
+ */
+public class AnnotationCache {
+    private static final Logger logger = LoggerFactory.getLogger(AnnotationCache.class);
+    public static final String HASH_FIELD = AnnotationStore.HASH_FIELD;
+
+    private final MongoCollection<Document> speeches;
+    private final AnnotationStore annotationStore;
+    private final String pipelineSignature;
+    private final boolean recordHits;
+    private final Document payloadProjection;
+    private final AtomicLong hits = new AtomicLong(0);
+    private final AtomicLong misses = new AtomicLong(0);
+
+    /**
+     * Creates the cache for one pipeline configuration.
+     *
+     * @param database database holding the speeches collection
+     * @param annotationStore store of the annotations kept outside the speech documents
+     * @param pipelineSignature description of the pipeline components and their parameters
+     * @param recordHits whether a hit is counted on the speech it was served from, at the cost of one write
+     */
+    public AnnotationCache(MongoDatabase database, AnnotationStore annotationStore, String pipelineSignature, boolean recordHits) {
+        this.speeches = database.getCollection("speeches");
+        this.annotationStore = annotationStore;
+        this.pipelineSignature = pipelineSignature;
+        this.recordHits = recordHits;
+        this.speeches.createIndex(Indexes.ascending(HASH_FIELD));
+
+        this.payloadProjection = new Document("average_sentiment", 1);
+        AnnotationStore.PAYLOAD_FIELDS.forEach(field -> payloadProjection.append(field, 1));
+    }
+
+    /**
+     * Computes the cache key of a document.
+     *
+     * @param text the document text
+     * @param language the document language
+     * @return hex encoded SHA-256 hash
+     */
+    public String key(String text, String language) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(pipelineSignature.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(String.valueOf(language).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(text.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Looks up the annotations stored for a key.
+     *
+     * @param key the cache key
+     * @return the annotations document, or null on a miss
+     */
+    public Document lookup(String key) {
+        try {
+            Object sourceId;
+            Document annotations = annotationStore.findByHash(key);
+            if (annotations != null) {
+                sourceId = annotations.remove("_id");
+                annotations.remove("speechId");
+                annotations.remove(HASH_FIELD);
+            } else {
+                annotations = speeches.find(new Document(HASH_FIELD, key)
+                                .append("processed", true)
+                                .append(AnnotationStore.STORAGE_FIELD, new Document("$exists", false)))
+                        .projection(payloadProjection)
+                        .first();
+                if (annotations == null) {
+                    misses.incrementAndGet();
+                    return null;
+                }
+                sourceId = annotations.remove("_id");
+            }
+            hits.incrementAndGet();
+            if (recordHits) {
+                speeches.updateOne(new Document("_id", sourceId), Updates.combine(
+                        Updates.inc("annotationCacheHits", 1), Updates.set("lastCacheHitAt", new Date())));
+            }
+            return annotations;
+        } catch (Exception e) {
+            logger.warn("Annotation cache lookup failed for {}: {}", key, e.getMessage());
+            misses.incrementAndGet();
+            return null;
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+}
@@ -0,0 +1,209 @@
+package com.myfirstJavalin.database;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.gridfs.GridFSBucket;
+import com.mongodb.client.gridfs.GridFSBuckets;
+import com.mongodb.client.gridfs.model.GridFSFile;
+import com.mongodb.client.gridfs.model.GridFSUploadOptions;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.WriteModel;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DocumentCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Stores the annotations of a speech outside the speeches collection, keyed by the speech id.
+ * Annotations go to the speechAnnotations collection, or to the GridFS bucket of the same
+ * name when their BSON size comes close to the 16 MB document limit. The speech itself only
+ * keeps a small summary, so list and filter queries on speeches no longer load annotation bytes.
+ * Every entry also records the annotation cache key it was produced for, so the cache finds it
+ * even after a re-ingestion replaced the speech document.
+ */
+public class AnnotationStore {
+    private static final Logger logger = LoggerFactory.getLogger(AnnotationStore.class);
+    public static final String COLLECTION = "speechAnnotations";
+    public static final String STORAGE_FIELD = "annotationStorage";
+    public static final String HASH_FIELD = "annotationHash";
+
+    /**
+     * Annotation fields that are moved off the speech document.
+     */
+    public static final List<String> PAYLOAD_FIELDS = List.of(
+            "token", "sentence", "namedEntities", "dependency", "sentiment", "topics", "annotationFormat");
+
+    // Rough lower bound of the BSON size of one token, used to skip exact sizing for small speeches
+    private static final int ESTIMATED_BYTES_PER_TOKEN = 60;
+
+    private final MongoCollection<Document> annotations;
+    private final GridFSBucket bucket;
+    private final long gridFsThresholdBytes;
+
+    /**
+     * @param database database holding the annotations collection and bucket
+     * @param gridFsThresholdBytes BSON size above which annotations are stored in GridFS
+     */
+    public AnnotationStore(MongoDatabase database, long gridFsThresholdBytes) {
+        this.annotations = database.getCollection(COLLECTION);
+        this.bucket = GridFSBuckets.create(database, COLLECTION);
+        this.gridFsThresholdBytes = gridFsThresholdBytes;
+        this.annotations.createIndex(Indexes.ascending(HASH_FIELD));
+        database.getCollection(COLLECTION + ".files").createIndex(Indexes.ascending("metadata." + HASH_FIELD));
+    }
+
+    /**
+     * Prepares the storage of the annotations of a speech. Large annotations are uploaded
+     * to GridFS right away; otherwise a write model for {@link #writeAll(List)} is returned.
+     *
+     * @param speechId the speech id
+     * @param payload the annotations
+     * @param annotationHash the annotation cache key of the speech text, or null
+     * @return the write model, or null if the annotations went to GridFS
+     */
+    public WriteModel<Document> prepare(String speechId, Document payload, String annotationHash) {
+        Document stored = new Document(payload).append("_id", speechId).append("speechId", speechId);
+        if (annotationHash != null) {
+            stored.append(HASH_FIELD, annotationHash);
+        }
+
+        if (estimatedSize(payload) >= gridFsThresholdBytes / 2) {
+            RawBsonDocument raw = new RawBsonDocument(stored, new DocumentCodec());
+            if (raw.getByteBuffer().remaining() >= gridFsThresholdBytes) {
+                uploadToGridFs(speechId, annotationHash, raw);
+                return null;
+            }
+        }
+
+        return new ReplaceOneModel<>(Filters.eq("_id", speechId), stored, new ReplaceOptions().upsert(true));
+    }
+
+    /**
+     * Executes prepared writes in one unordered bulk write.
+     *
+     * @param writes the prepared write models
+     */
+    public void writeAll(List<WriteModel<Document>> writes) {
+        if (!writes.isEmpty()) {
+            annotations.bulkWrite(writes, new BulkWriteOptions().ordered(false));
+        }
+    }
+
+    /**
+     * Removes the GridFS copies of speeches whose annotations were just written to the collection,
+     * so a speech that shrank does not keep a stale large version.
+     *
+     * @param speechIds ids written to the collection
+     */
+    public void removeFromGridFs(Collection<String> speechIds) {
+        if (speechIds.isEmpty()) {
+            return;
+        }
+        bucket.find(Filters.in("filename", speechIds)).forEach(file -> bucket.delete(file.getObjectId()));
+    }
+
+    private void uploadToGridFs(String speechId, String annotationHash, RawBsonDocument raw) {
+        // Replace an earlier upload and the collection entry of the same speech
+        bucket.find(Filters.eq("filename", speechId)).forEach(file -> bucket.delete(file.getObjectId()));
+        annotations.deleteOne(Filters.eq("_id", speechId));
+
+        byte[] bytes = new byte[raw.getByteBuffer().remaining()];
+        raw.getByteBuffer().get(bytes);
+        bucket.uploadFromStream(speechId, new ByteArrayInputStream(bytes),
+                new GridFSUploadOptions().metadata(new Document("speechId", speechId).append(HASH_FIELD, annotationHash)));
+        logger.info("Stored {} bytes of annotations for speech {} in GridFS", bytes.length, speechId);
+    }
+
+    /**
+     * Loads the annotations of a speech from the collection or GridFS.
+     *
+     * @param speechId the speech id
+     * @return the annotations, or null if the speech has none
+     */
+    public Document load(String speechId) {
+        Document stored = annotations.find(Filters.eq("_id", speechId)).first();
+        if (stored != null) {
+            return stored;
+        }
+
+        return download(bucket.find(Filters.eq("filename", speechId)).first());
+    }
+
+    /**
+     * Loads annotations produced for an annotation cache key, under whichever speech they are stored.
+     *
+     * @param annotationHash the annotation cache key
+     * @return the annotations, or null if none were stored for the key
+     */
+    public Document findByHash(String annotationHash) {
+        Document stored = annotations.find(Filters.eq(HASH_FIELD, annotationHash)).first();
+        if (stored != null) {
+            return stored;
+        }
+        return download(bucket.find(Filters.eq("metadata." + HASH_FIELD, annotationHash)).first());
+    }
+
+    private Document download(GridFSFile file) {
+        if (file == null) {
+            return null;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream((int) file.getLength());
+        bucket.downloadToStream(file.getObjectId(), out);
+        return new RawBsonDocument(out.toByteArray()).decode(new DocumentCodec());
+    }
+
+    /**
+     * Builds the summary kept on the speech document: average sentiment, topic labels and counts.
+     *
+     * @param payload the annotations, in row or columnar layout
+     * @return the summary fields
+     */
+    public static Document summarize(Document payload) {
+        Set<String> topicLabels = new LinkedHashSet<>();
+        Object topics = payload.get("topics");
+        if (topics instanceof List) {
+            for (Object topic : (List<?>) topics) {
+                if (topic instanceof Document && ((Document) topic).getString("topic") != null) {
+                    topicLabels.add(((Document) topic).getString("topic"));
+                }
+            }
+        }
+
+        return new Document("average_sentiment", payload.get("average_sentiment"))
+                .append("topicLabels", new ArrayList<>(topicLabels))
+                .append("annotationCounts", new Document()
+                        .append("token", count(payload.get("token")))
+                        .append("sentence", count(payload.get("sentence")))
+                        .append("namedEntities", count(payload.get("namedEntities")))
+                        .append("dependency", count(payload.get("dependency")))
+                        .append("sentiment", count(payload.get("sentiment")))
+                        .append("topics", count(topics)));
+    }
+
+    private static int count(Object annotationList) {
+        if (annotationList instanceof List) {
+            return ((List<?>) annotationList).size();
+        }
+        if (annotationList instanceof Document) {
+            return ((Document) annotationList).getInteger("count", 0);
+        }
+        return 0;
+    }
+
+    private static long estimatedSize(Document payload) {
+        return (long) count(payload.get("token")) * ESTIMATED_BYTES_PER_TOKEN;
+    }
+}
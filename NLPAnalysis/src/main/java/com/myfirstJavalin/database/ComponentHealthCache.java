@@ -0,0 +1,66 @@
+package com.myfirstJavalin.database;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.ReplaceOptions;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Date;
+
+/**
+ * Last known health of the remote NLP components, keyed by component URL.
+ * A processor that starts shortly after another run trusts a recent result instead of
+ * sending a test document through every component again.
+ */
+public class ComponentHealthCache {
+    private static final Logger logger = LoggerFactory.getLogger(ComponentHealthCache.class);
+    private static final String COLLECTION = "componentHealth";
+
+    private final MongoCollection<Document> health;
+    private final long ttlMillis;
+
+    /**
+     * @param database database holding the health collection
+     * @param ttlMillis how long a result is trusted
+     */
+    public ComponentHealthCache(MongoDatabase database, long ttlMillis) {
+        this.health = database.getCollection(COLLECTION);
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * @param url component URL
+     * @return the recent health of the component, or null if it has to be checked
+     */
+    public Boolean lookup(String url) {
+        try {
+            Document entry = health.find(new Document("_id", url)).first();
+            if (entry == null || entry.getDate("checkedAt") == null
+                    || entry.getDate("checkedAt").getTime() + ttlMillis < System.currentTimeMillis()) {
+                return null;
+            }
+            return entry.getBoolean("healthy");
+        } catch (Exception e) {
+            logger.warn("Component health lookup failed for {}: {}", url, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Stores the current health of a component.
+     *
+     * @param url component URL
+     * @param healthy whether the component answered
+     */
+    public void record(String url, boolean healthy) {
+        try {
+            health.replaceOne(new Document("_id", url),
+                    new Document("_id", url).append("healthy", healthy).append("checkedAt", new Date()),
+                    new ReplaceOptions().upsert(true));
+        } catch (Exception e) {
+            logger.warn("Failed to store the health of {}: {}", url, e.getMessage());
+        }
+    }
+}
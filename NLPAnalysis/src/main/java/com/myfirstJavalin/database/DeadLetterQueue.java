@@ -0,0 +1,140 @@
+package com.myfirstJavalin.database;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.Sorts;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Dead-letter queue of speeches whose annotation failed, keyed by the speech id.
+ * Every entry records the error class and message, the number of failed attempts and
+ * the time of the next retry, which grows with the attempts. Once the maximum number of
+ * attempts is reached the entry is kept as exhausted and no longer retried.
+ * A failed speech is marked with {@link #SPEECH_FIELD} instead of being set to processed,
+ * so it stays out of the regular feed but is not lost.
+ */
+public class DeadLetterQueue {
+    private static final Logger logger = LoggerFactory.getLogger(DeadLetterQueue.class);
+    public static final String COLLECTION = "speechDeadLetters";
+    public static final String SPEECH_FIELD = "deadLettered";
+
+    private final MongoCollection<Document> deadLetters;
+    private final int maxAttempts;
+    private final IntToLongFunction retryDelay;
+
+    /**
+     * @param database database holding the dead-letter collection
+     * @param maxAttempts number of failed attempts after which a speech is no longer retried
+     * @param retryDelay delay in milliseconds before the retry following the given failed attempt
+     */
+    public DeadLetterQueue(MongoDatabase database, int maxAttempts, IntToLongFunction retryDelay) {
+        this.deadLetters = database.getCollection(COLLECTION);
+        this.maxAttempts = maxAttempts;
+        this.retryDelay = retryDelay;
+        this.deadLetters.createIndex(Indexes.ascending("exhausted", "nextRetryAt"));
+    }
+
+    /**
+     * Records a failed attempt of a speech and schedules its next retry.
+     *
+     * @param speechId the speech id
+     * @param errorClass class of the error, e.g. the exception class
+     * @param errorMessage error message
+     * @return the number of failed attempts so far
+     */
+    public int record(String speechId, String errorClass, String errorMessage) {
+        Date now = new Date();
+        Document entry = deadLetters.findOneAndUpdate(new Document("_id", speechId),
+                new Document("$inc", new Document("attempts", 1))
+                        .append("$set", new Document("errorClass", errorClass)
+                                .append("errorMessage", errorMessage)
+                                .append("lastFailedAt", now))
+                        .append("$setOnInsert", new Document("speechId", speechId).append("firstFailedAt", now)),
+                new FindOneAndUpdateOptions().upsert(true).returnDocument(ReturnDocument.AFTER));
+
+        int attempts = entry.getInteger("attempts", 1);
+        boolean exhausted = attempts >= maxAttempts;
+        Document schedule = new Document("exhausted", exhausted)
+                .append("nextRetryAt", exhausted ? null : new Date(now.getTime() + retryDelay.applyAsLong(attempts)));
+        deadLetters.updateOne(new Document("_id", speechId), new Document("$set", schedule));
+
+        if (exhausted) {
+            logger.error("Speech {} failed {} times ({}), giving up: {}", speechId, attempts, errorClass, errorMessage);
+        } else {
+            logger.warn("Speech {} failed attempt {} ({}), retry at {}", speechId, attempts, errorClass,
+                    schedule.getDate("nextRetryAt"));
+        }
+        return attempts;
+    }
+
+    /**
+     * Claims entries that are due for a retry. A claimed entry is pushed back by the claim
+     * timeout, so if the retry never reports back the entry becomes due again.
+     *
+     * @param limit maximum number of entries
+     * @param claimTimeoutMillis time after which an unfinished retry is due again
+     * @return ids of the claimed speeches
+     */
+    public List<String> claimDue(int limit, long claimTimeoutMillis) {
+        List<String> claimed = new ArrayList<>();
+        while (claimed.size() < limit) {
+            Date now = new Date();
+            Document entry = deadLetters.findOneAndUpdate(
+                    new Document("exhausted", false).append("nextRetryAt", new Document("$lte", now)),
+                    new Document("$set", new Document("nextRetryAt", new Date(now.getTime() + claimTimeoutMillis))),
+                    new FindOneAndUpdateOptions().sort(Sorts.ascending("nextRetryAt")));
+            if (entry == null) {
+                break;
+            }
+            claimed.add(entry.getString("_id"));
+        }
+        return claimed;
+    }
+
+    /**
+     * Makes a claimed entry due again right away, e.g. when the retry could not be started.
+     *
+     * @param speechId the speech id
+     */
+    public void release(String speechId) {
+        deadLetters.updateOne(new Document("_id", speechId).append("exhausted", false),
+                new Document("$set", new Document("nextRetryAt", new Date())));
+    }
+
+    /**
+     * @return true if at least one entry is due for a retry
+     */
+    public boolean hasDue() {
+        return deadLetters.countDocuments(new Document("exhausted", false)
+                .append("nextRetryAt", new Document("$lte", new Date()))) > 0;
+    }
+
+    /**
+     * Removes the entries of speeches that were annotated successfully.
+     *
+     * @param speechIds the speech ids
+     */
+    public void resolve(Collection<String> speechIds) {
+        if (!speechIds.isEmpty()) {
+            deadLetters.deleteMany(new Document("_id", new Document("$in", new ArrayList<>(speechIds))));
+        }
+    }
+
+    /**
+     * @return number of entries that are still retried
+     */
+    public long countPending() {
+        return deadLetters.countDocuments(new Document("exhausted", false));
+    }
+}
@@ -4,6 +4,7 @@ import com.mongodb.client.*;
 import com.mongodb.client.model.*;
 import com.mongodb.client.result.InsertOneResult;
 import com.myfirstJavalin.config.AppConfig;
+import com.myfirstJavalin.data.SpeechDBImpl;
 import org.bson.Document;
 import org.bson.conversions.Bson;
 import org.slf4j.ILoggerFactory;
@@ -22,6 +23,7 @@ public class MongoDBHandler {
     private final MongoDatabase database;
     private final String defaultCollectionName;
     private MongoDatabase mongoDatabase;
+    private final AnnotationStore annotationStore;
     AppConfig config = new AppConfig();
 
     public MongoDBHandler() throws IOException {
@@ -31,6 +33,8 @@ public class MongoDBHandler {
         this.mongoClient = MongoClients.create(config.getMongoUri());
         this.database = mongoClient.getDatabase(config.getMongoDatabase());
         this.defaultCollectionName = config.getAbgeordneterCollection();
+        this.annotationStore = new AnnotationStore(database,
+                Long.parseLong(config.getProperty("nlp.annotations.gridFsThresholdMB", "12").trim()) * 1024L * 1024L);
 
         LOGGER.info("Connected to MongoDB: " + database.getName());
     }
@@ -177,6 +181,24 @@ public class MongoDBHandler {
         mongoClient.close();
     }
 
+    /**
+     * Loads a speech together with its annotations, which may be kept in the AnnotationStore.
+     *
+     * @param speechId the speech id
+     * @return the speech, or null if it does not exist
+     */
+    public SpeechDBImpl getSpeech(String speechId) {
+        try {
+            Document speech = database.getCollection(config.getSpeechCollection())
+                    .find(Filters.eq("_id", speechId))
+                    .first();
+            return speech != null ? new SpeechDBImpl(speech, annotationStore) : null;
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Speech retrieval failed", e);
+            return null;
+        }
+    }
+
     public List<String> getAllSpeechIds() {
         return null;
     }
@@ -0,0 +1,129 @@
+package com.myfirstJavalin.database;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.ReplaceOptions;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Persisted checkpoint of an {@code _id}-ordered scan over a collection.
+ * Ids are registered in scan order and completed in any order; the checkpoint only
+ * moves past an id once every id before it has completed as well, so a restart
+ * resumes exactly after the last contiguous block of finished documents.
+ */
+public class ScanCheckpoint {
+    private static final Logger logger = LoggerFactory.getLogger(ScanCheckpoint.class);
+    private static final String CHECKPOINT_COLLECTION = "scanCheckpoints";
+    private static final int PERSIST_INTERVAL = 20;
+
+    private final MongoCollection<Document> checkpoints;
+    private final String scanName;
+    private final Map<Object, Boolean> pending = new LinkedHashMap<>();
+    private Object lastCompletedId;
+    private int unsavedAdvances = 0;
+
+    /**
+     * Creates a checkpoint for the named scan.
+     *
+     * @param database database holding the checkpoint collection
+     * @param scanName unique name of the scan, e.g. the scanned collection
+     */
+    public ScanCheckpoint(MongoDatabase database, String scanName) {
+        this.checkpoints = database.getCollection(CHECKPOINT_COLLECTION);
+        this.scanName = scanName;
+    }
+
+    /**
+     * Loads the persisted checkpoint.
+     *
+     * @return the last completed id, or null if the scan starts from the beginning
+     */
+    public synchronized Object load() {
+        Document saved = checkpoints.find(new Document("_id", scanName)).first();
+        lastCompletedId = saved != null ? saved.get("lastId") : null;
+        if (lastCompletedId != null) {
+            logger.info("Resuming scan {} after _id {}", scanName, lastCompletedId);
+        }
+        return lastCompletedId;
+    }
+
+    /**
+     * Registers an id handed out by the scan. Must be called in scan order.
+     *
+     * @param id the document id
+     */
+    public synchronized void register(Object id) {
+        pending.put(id, Boolean.FALSE);
+    }
+
+    /**
+     * Marks an id as finished, successfully or not, and advances the checkpoint if possible.
+     *
+     * @param id the document id
+     */
+    public synchronized void complete(Object id) {
+        if (!pending.containsKey(id)) {
+            return;
+        }
+        pending.put(id, Boolean.TRUE);
+
+        Iterator<Map.Entry<Object, Boolean>> iterator = pending.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Object, Boolean> head = iterator.next();
+            if (!head.getValue()) {
+                break;
+            }
+            lastCompletedId = head.getKey();
+            iterator.remove();
+            unsavedAdvances++;
+        }
+
+        if (unsavedAdvances >= PERSIST_INTERVAL) {
+            save();
+        }
+    }
+
+    /**
+     * @return number of registered ids that have not been completed yet
+     */
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Writes the current checkpoint to MongoDB.
+     */
+    public synchronized void save() {
+        if (lastCompletedId == null) {
+            return;
+        }
+        try {
+            checkpoints.replaceOne(new Document("_id", scanName),
+                    new Document("_id", scanName)
+                            .append("lastId", lastCompletedId)
+                            .append("updatedAt", new Date()),
+                    new ReplaceOptions().upsert(true));
+            unsavedAdvances = 0;
+        } catch (Exception e) {
+            logger.error("Failed to save checkpoint for scan {}: {}", scanName, e.getMessage());
+        }
+    }
+
+    /**
+     * Removes the checkpoint once a scan has run through the whole collection,
+     * so the next run starts from the beginning again.
+     */
+    public synchronized void clear() {
+        checkpoints.deleteOne(new Document("_id", scanName));
+        lastCompletedId = null;
+        unsavedAdvances = 0;
+        logger.info("Scan {} completed, checkpoint cleared", scanName);
+    }
+}
@@ -0,0 +1,257 @@
+package com.myfirstJavalin.database;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lease-based work claiming on the speeches collection, so several NLPProcessor
+ * nodes can share one corpus without annotating the same speech twice.
+ * A node claims a speech atomically with findOneAndUpdate by writing its lease owner
+ * and an expiry time; a heartbeat keeps the leases of all held speeches alive.
+ * Leases of crashed nodes simply expire and the speeches go back to the pool.
+ */
+public class SpeechLeaseManager {
+    private static final Logger logger = LoggerFactory.getLogger(SpeechLeaseManager.class);
+    public static final String LEASE_OWNER = "leaseOwner";
+    public static final String LEASE_EXPIRES_AT = "leaseExpiresAt";
+
+    private final MongoCollection<Document> speeches;
+    private final String nodeId;
+    private final long leaseTtlMillis;
+    private final long heartbeatMillis;
+    private final Set<String> heldIds = ConcurrentHashMap.newKeySet();
+    private ScheduledExecutorService heartbeat;
+
+    /**
+     * Creates a lease manager for one node.
+     *
+     * @param speeches the speeches collection
+     * @param nodeId unique id of this node
+     * @param leaseTtlMillis how long a lease stays valid without renewal
+     * @param heartbeatMillis interval at which held leases are renewed
+     */
+    public SpeechLeaseManager(MongoCollection<Document> speeches, String nodeId, long leaseTtlMillis, long heartbeatMillis) {
+        if (heartbeatMillis >= leaseTtlMillis) {
+            throw new IllegalArgumentException("Heartbeat interval must be shorter than the lease TTL");
+        }
+        this.speeches = speeches;
+        this.nodeId = nodeId;
+        this.leaseTtlMillis = leaseTtlMillis;
+        this.heartbeatMillis = heartbeatMillis;
+        // The compound index serves the claim filter on processed: false and its sort without touching processed speeches
+        this.speeches.createIndex(Indexes.ascending("processed", LEASE_EXPIRES_AT, "_id"));
+        markUnflaggedUnprocessed();
+    }
+
+    /**
+     * Claims match processed: false by equality, so speeches ingested without the flag
+     * (or re-ingested, which replaces the whole document) get it before they can be claimed.
+     * The filter on null uses the compound index, so the check is cheap when there are none.
+     *
+     * @return number of speeches that were flagged
+     */
+    private long markUnflaggedUnprocessed() {
+        UpdateResult flagged = speeches.updateMany(new Document("processed", null),
+                new Document("$set", new Document("processed", false)));
+        if (flagged.getModifiedCount() > 0) {
+            logger.info("Marked {} speeches without a processed flag as unprocessed", flagged.getModifiedCount());
+        }
+        return flagged.getModifiedCount();
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Starts renewing the leases held by this node.
+     */
+    public void startHeartbeat() {
+        heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "lease-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeat.scheduleAtFixedRate(this::renewLeases, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+        logger.info("Node {} renews leases every {} ms (TTL {} ms)", nodeId, heartbeatMillis, leaseTtlMillis);
+    }
+
+    /**
+     * Atomically claims the next unprocessed speech that is not leased by a live node.
+     * Never leased speeches come first, then those whose lease expired longest ago.
+     * Dead-lettered speeches are left to the retry scheduler.
+     *
+     * @return the claimed speech, or null if nothing is left to claim
+     */
+    public Document claimNext() {
+        Date now = new Date();
+        Document filter = new Document("processed", false)
+                .append(DeadLetterQueue.SPEECH_FIELD, new Document("$ne", true))
+                .append("$or", Arrays.asList(
+                        new Document(LEASE_EXPIRES_AT, null),
+                        new Document(LEASE_EXPIRES_AT, new Document("$lt", now))));
+        Document claimed = claim(filter, Sorts.ascending(LEASE_EXPIRES_AT, "_id"), now);
+        // Speeches ingested while this node runs have no flag yet
+        if (claimed == null && markUnflaggedUnprocessed() > 0) {
+            claimed = claim(filter, Sorts.ascending(LEASE_EXPIRES_AT, "_id"), now);
+        }
+        return claimed;
+    }
+
+    /**
+     * Claims one specific unprocessed speech, e.g. a dead-lettered one that is due for a retry.
+     * Succeeds if the speech is not leased by another live node.
+     *
+     * @param docId the speech id
+     * @return the claimed speech, or null if it is processed or leased elsewhere
+     */
+    public Document claim(String docId) {
+        Date now = new Date();
+        Document filter = new Document("_id", docId)
+                .append("processed", new Document("$ne", true))
+                .append("$or", Arrays.asList(
+                        new Document(LEASE_EXPIRES_AT, null),
+                        new Document(LEASE_EXPIRES_AT, new Document("$lt", now)),
+                        new Document(LEASE_OWNER, nodeId)));
+        return claim(filter, Sorts.ascending("_id"), now);
+    }
+
+    private Document claim(Document filter, Bson sort, Date now) {
+        Document update = new Document("$set", new Document(LEASE_OWNER, nodeId)
+                .append(LEASE_EXPIRES_AT, new Date(now.getTime() + leaseTtlMillis))
+                .append("leaseClaimedAt", now));
+
+        Document claimed = speeches.findOneAndUpdate(filter, update, new FindOneAndUpdateOptions()
+                .sort(sort)
+                .returnDocument(ReturnDocument.AFTER));
+        if (claimed != null) {
+            heldIds.add(claimed.get("_id").toString());
+        }
+        return claimed;
+    }
+
+    /**
+     * Claims up to {@code size} speeches.
+     *
+     * @param size maximum number of speeches to claim
+     * @return the claimed speeches, empty when the pool is exhausted
+     */
+    public List<Document> claimBatch(int size) {
+        List<Document> batch = new ArrayList<>();
+        while (batch.size() < size) {
+            Document claimed = claimNext();
+            if (claimed == null) {
+                break;
+            }
+            batch.add(claimed);
+        }
+        return batch;
+    }
+
+    /**
+     * Filter that only matches the speech while this node still owns its lease.
+     * Final writes use it so a node whose lease expired cannot overwrite another node's result.
+     *
+     * @param docId the speech id
+     * @return filter document
+     */
+    public Document ownedFilter(String docId) {
+        return new Document("_id", docId).append(LEASE_OWNER, nodeId);
+    }
+
+    /**
+     * Fields to unset on the final write of a speech.
+     *
+     * @return the $unset document
+     */
+    public Document leaseFieldsUnset() {
+        return new Document(LEASE_OWNER, "").append(LEASE_EXPIRES_AT, "").append("leaseClaimedAt", "");
+    }
+
+    /**
+     * Forgets a speech after its final write, so the heartbeat no longer renews it.
+     *
+     * @param docId the speech id
+     */
+    public void release(String docId) {
+        heldIds.remove(docId);
+    }
+
+    /**
+     * Hands a claimed speech back to the pool right away, e.g. when it could not be queued.
+     *
+     * @param docId the speech id
+     */
+    public void handBack(String docId) {
+        heldIds.remove(docId);
+        speeches.updateOne(ownedFilter(docId), new Document("$unset", leaseFieldsUnset()));
+    }
+
+    /**
+     * Hands a speech back without finishing it, blocking it for every node until the given time.
+     * The lease expiry doubles as the earliest time the speech may be claimed again.
+     *
+     * @param docId the speech id
+     * @param until time before which the speech must not be claimed
+     */
+    public void park(String docId, Date until) {
+        heldIds.remove(docId);
+        speeches.updateOne(ownedFilter(docId), new Document("$set", new Document(LEASE_EXPIRES_AT, until))
+                .append("$unset", new Document(LEASE_OWNER, "").append("leaseClaimedAt", "")));
+    }
+
+    private void renewLeases() {
+        if (heldIds.isEmpty()) {
+            return;
+        }
+        List<String> ids = new ArrayList<>(heldIds);
+        try {
+            UpdateResult result = speeches.updateMany(
+                    new Document("_id", new Document("$in", ids)).append(LEASE_OWNER, nodeId),
+                    new Document("$set", new Document(LEASE_EXPIRES_AT, new Date(System.currentTimeMillis() + leaseTtlMillis))));
+            if (result.getMatchedCount() < ids.size()) {
+                logger.warn("Node {} lost {} of {} leases", nodeId, ids.size() - result.getMatchedCount(), ids.size());
+            }
+        } catch (Exception e) {
+            logger.error("Lease renewal failed for node {}: {}", nodeId, e.getMessage());
+        }
+    }
+
+    /**
+     * Stops the heartbeat and hands all unfinished speeches of this node back to the pool.
+     */
+    public void shutdown() {
+        if (heartbeat != null) {
+            heartbeat.shutdownNow();
+        }
+        try {
+            UpdateResult result = speeches.updateMany(
+                    new Document(LEASE_OWNER, nodeId).append("processed", new Document("$ne", true)),
+                    new Document("$unset", leaseFieldsUnset()));
+            if (result.getModifiedCount() > 0) {
+                logger.info("Node {} released {} unfinished leases", nodeId, result.getModifiedCount());
+            }
+        } catch (Exception e) {
+            logger.error("Failed to release leases of node {}: {}", nodeId, e.getMessage());
+        }
+        heldIds.clear();
+    }
+}
@@ -0,0 +1,198 @@
+package com.myfirstJavalin.database;
+
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoWriteException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.UpdateOptions;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HexFormat;
+
+/**
+ * Manifest of the transcribed videos, keyed by the SHA-256 hash of the file content.
+ * An entry lists every speech id the content was stored under, the size of the file and the
+ * GridFS id of the stored video. A rerun skips a speech id with an entry of the same size
+ * without reading the file, and a re-downloaded copy under another name is recognized by its
+ * hash, so it is neither transcribed nor uploaded again.
+ * A job reserves a content by inserting its entry in the inProgress state before transcribing it;
+ * the insert of a concurrent job with the same content fails on the _id, and that job waits for
+ * the first one and reuses its result. A reservation older than the timeout is taken over, so
+ * the content of a crashed job is not blocked forever.
+ */
+public class VideoManifest {
+    private static final Logger logger = LoggerFactory.getLogger(VideoManifest.class);
+    public static final String COLLECTION = "videoManifest";
+    public static final String HASH_METADATA_FIELD = "sha256";
+    public static final String STATE_IN_PROGRESS = "inProgress";
+    public static final String STATE_DONE = "done";
+    private static final long POLL_MILLIS = 5000;
+
+    private final MongoCollection<Document> manifest;
+    private final long reservationTimeoutMillis;
+
+    /**
+     * @param database database holding the manifest
+     * @param bucketName GridFS bucket of the videos; its files are indexed by content hash
+     * @param reservationTimeoutMillis age after which the reservation of another job is considered abandoned
+     */
+    public VideoManifest(MongoDatabase database, String bucketName, long reservationTimeoutMillis) {
+        this.manifest = database.getCollection(COLLECTION);
+        this.reservationTimeoutMillis = reservationTimeoutMillis;
+        this.manifest.createIndex(Indexes.ascending("speechIds"));
+        database.getCollection(bucketName + ".files").createIndex(Indexes.ascending("metadata." + HASH_METADATA_FIELD));
+    }
+
+    /**
+     * @param speechId the speech id
+     * @param bytes size of the video file
+     * @return true if a video of this size was already transcribed under the speech id
+     */
+    public boolean isProcessed(String speechId, long bytes) {
+        return manifest.find(new Document("speechIds", speechId).append("bytes", bytes))
+                .projection(new Document("_id", 1)).first() != null;
+    }
+
+    /**
+     * @param speechId the speech id
+     * @return true if any video was transcribed under the speech id
+     */
+    public boolean contains(String speechId) {
+        return manifest.find(new Document("speechIds", speechId)).projection(new Document("_id", 1)).first() != null;
+    }
+
+    /**
+     * @param contentHash SHA-256 hash of the video
+     * @return the entry of a video with this content, or null
+     */
+    public Document findByHash(String contentHash) {
+        return manifest.find(new Document("_id", contentHash)).first();
+    }
+
+    /**
+     * @param entry a manifest entry
+     * @return true if the content is being transcribed and has no result yet
+     */
+    public static boolean isInProgress(Document entry) {
+        return entry != null && STATE_IN_PROGRESS.equals(entry.getString("state"));
+    }
+
+    /**
+     * Reserves a content for transcription. Succeeds for exactly one of several concurrent jobs.
+     *
+     * @param contentHash SHA-256 hash of the video
+     * @param speechId the speech id of the reserving job
+     * @return true if this job holds the reservation and must transcribe the video
+     */
+    public boolean reserve(String contentHash, String speechId) {
+        Date now = new Date();
+        try {
+            manifest.insertOne(new Document("_id", contentHash)
+                    .append("state", STATE_IN_PROGRESS)
+                    .append("reservedBy", speechId)
+                    .append("reservedAt", now));
+            return true;
+        } catch (MongoWriteException e) {
+            if (e.getError().getCategory() != ErrorCategory.DUPLICATE_KEY) {
+                throw e;
+            }
+        }
+
+        // Reserve an entry whose result could not be reused, or take over one whose job did not finish in time
+        Document previous = manifest.findOneAndUpdate(new Document("_id", contentHash)
+                        .append("$or", Arrays.asList(
+                                new Document("state", new Document("$ne", STATE_IN_PROGRESS)),
+                                new Document("reservedAt", new Document("$lt", new Date(now.getTime() - reservationTimeoutMillis))))),
+                new Document("$set", new Document("state", STATE_IN_PROGRESS).append("reservedBy", speechId).append("reservedAt", now)));
+        if (isInProgress(previous)) {
+            logger.warn("Took over the abandoned reservation of {} for {}", previous.getString("reservedBy"), speechId);
+        }
+        return previous != null;
+    }
+
+    /**
+     * Gives up the reservation of a job that failed, so a waiting job can transcribe the content.
+     *
+     * @param contentHash SHA-256 hash of the video
+     * @param speechId the speech id of the reserving job
+     */
+    public void release(String contentHash, String speechId) {
+        manifest.updateOne(new Document("_id", contentHash)
+                        .append("state", STATE_IN_PROGRESS)
+                        .append("reservedBy", speechId),
+                new Document("$unset", new Document("state", "").append("reservedBy", "").append("reservedAt", "")));
+    }
+
+    /**
+     * Waits while another job holds the reservation of a content.
+     *
+     * @param contentHash SHA-256 hash of the video
+     * @return the entry once it is no longer in progress or its reservation is abandoned
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public Document awaitResult(String contentHash) throws InterruptedException {
+        while (true) {
+            Document entry = findByHash(contentHash);
+            if (!isInProgress(entry)
+                    || entry.getDate("reservedAt").getTime() < System.currentTimeMillis() - reservationTimeoutMillis) {
+                return entry;
+            }
+            Thread.sleep(POLL_MILLIS);
+        }
+    }
+
+    /**
+     * Records that a video was transcribed and stored under a speech id, ending a reservation of its content.
+     *
+     * @param contentHash SHA-256 hash of the video
+     * @param speechId the speech id
+     * @param bytes size of the video file
+     * @param videoRef GridFS id of the stored video
+     */
+    public void markProcessed(String contentHash, String speechId, long bytes, String videoRef) {
+        Date now = new Date();
+        manifest.updateOne(new Document("_id", contentHash),
+                new Document("$addToSet", new Document("speechIds", speechId))
+                        .append("$set", new Document("bytes", bytes).append("videoRef", videoRef)
+                                .append("state", STATE_DONE).append("updatedAt", now))
+                        .append("$unset", new Document("reservedBy", "").append("reservedAt", ""))
+                        .append("$min", new Document("firstProcessedAt", now)),
+                new UpdateOptions().upsert(true));
+        logger.debug("Video {} recorded in the manifest as {}", speechId, contentHash);
+    }
+
+    /**
+     * Hashes a file while streaming it from disk.
+     *
+     * @param file the file
+     * @return the lowercase hex SHA-256 of the content
+     * @throws IOException if the file cannot be read
+     */
+    public static String sha256(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        byte[] buffer = new byte[1024 * 1024];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
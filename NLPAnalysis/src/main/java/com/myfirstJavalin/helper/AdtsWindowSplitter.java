@@ -0,0 +1,144 @@
+package com.myfirstJavalin.helper;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Cuts an ADTS audio stream, as written by {@link Mp4AudioExtractor}, into overlapping time windows.
+ * Every AAC frame holds 1024 samples, so windows are cut at frame boundaries and each window file
+ * is a valid ADTS stream on its own. The overlap gives a transcriber context on both sides of a cut,
+ * so words spoken across it are recognized completely in at least one window.
+ */
+public class AdtsWindowSplitter {
+    private static final int SAMPLES_PER_FRAME = 1024;
+
+    private final double windowSeconds;
+    private final double overlapSeconds;
+
+    /**
+     * @param windowSeconds maximum length of a window
+     * @param overlapSeconds time shared by neighbouring windows, less than half a window
+     */
+    public AdtsWindowSplitter(double windowSeconds, double overlapSeconds) {
+        if (windowSeconds <= 0 || overlapSeconds < 0 || overlapSeconds * 2 >= windowSeconds) {
+            throw new IllegalArgumentException("Invalid window " + windowSeconds + " s with overlap " + overlapSeconds + " s");
+        }
+        this.windowSeconds = windowSeconds;
+        this.overlapSeconds = overlapSeconds;
+    }
+
+    /**
+     * Splits an ADTS file. Nothing is written if the audio fits into a single window.
+     *
+     * @param adts the ADTS file
+     * @param sampleRate sample rate of the stream
+     * @param directory directory the window files are created in
+     * @return windows in time order; a single window referring to the input file if it is short enough
+     * @throws IOException if a file cannot be read or written
+     */
+    public List<Window> split(Path adts, int sampleRate, Path directory) throws IOException {
+        long[] frameOffsets = indexFrames(adts);
+        int frames = frameOffsets.length - 1;
+        double frameSeconds = (double) SAMPLES_PER_FRAME / sampleRate;
+        int windowFrames = Math.max(1, (int) (windowSeconds / frameSeconds));
+        int overlapFrames = (int) (overlapSeconds / frameSeconds);
+        int step = windowFrames - overlapFrames;
+
+        List<Window> windows = new ArrayList<>();
+        if (frames <= windowFrames) {
+            windows.add(new Window(adts, 0, frames * frameSeconds));
+            return windows;
+        }
+
+        int count = (frames - overlapFrames + step - 1) / step;
+        try (FileChannel source = FileChannel.open(adts, StandardOpenOption.READ)) {
+            for (int i = 0; i < count; i++) {
+                int first = i * step;
+                int end = Math.min(frames, first + windowFrames);
+                Path target = Files.createTempFile(directory, "window-" + i + "-", Mp4AudioExtractor.FILE_EXTENSION);
+                try (FileChannel out = FileChannel.open(target, StandardOpenOption.WRITE)) {
+                    long position = frameOffsets[first];
+                    long remaining = frameOffsets[end] - position;
+                    while (remaining > 0) {
+                        long transferred = source.transferTo(position, remaining, out);
+                        position += transferred;
+                        remaining -= transferred;
+                    }
+                }
+                windows.add(new Window(target, first * frameSeconds, end * frameSeconds));
+            }
+        }
+        return windows;
+    }
+
+    /**
+     * Reads the frame headers of an ADTS file.
+     *
+     * @return the start of every frame followed by the file length
+     */
+    private static long[] indexFrames(Path adts) throws IOException {
+        long[] offsets = new long[1024];
+        int frames = 0;
+        long position = 0;
+        byte[] header = new byte[7];
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(adts), 64 * 1024)) {
+            while (in.readNBytes(header, 0, header.length) == header.length) {
+                if ((header[0] & 0xFF) != 0xFF || (header[1] & 0xF0) != 0xF0) {
+                    throw new IOException("No ADTS frame at byte " + position + " of " + adts);
+                }
+                int frameLength = ((header[3] & 0x03) << 11) | ((header[4] & 0xFF) << 3) | ((header[5] & 0xFF) >> 5);
+                if (frameLength < header.length) {
+                    throw new IOException("Invalid ADTS frame length at byte " + position + " of " + adts);
+                }
+                if (frames + 1 >= offsets.length) {
+                    offsets = Arrays.copyOf(offsets, offsets.length * 2);
+                }
+                offsets[frames++] = position;
+                in.skipNBytes(frameLength - header.length);
+                position += frameLength;
+            }
+        }
+        offsets[frames] = position;
+        return Arrays.copyOf(offsets, frames + 1);
+    }
+
+    /**
+     * A time range of the split audio and the file holding it.
+     */
+    public static class Window {
+        private final Path path;
+        private final double startSeconds;
+        private final double endSeconds;
+
+        public Window(Path path, double startSeconds, double endSeconds) {
+            this.path = path;
+            this.startSeconds = startSeconds;
+            this.endSeconds = endSeconds;
+        }
+
+        public Path getPath() {
+            return path;
+        }
+
+        public double getStartSeconds() {
+            return startSeconds;
+        }
+
+        public double getEndSeconds() {
+            return endSeconds;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%.2f-%.2f s", startSeconds, endSeconds);
+        }
+    }
+}
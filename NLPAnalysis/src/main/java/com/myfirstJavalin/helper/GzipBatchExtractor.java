@@ -3,6 +3,10 @@ package com.myfirstJavalin.helper;
 import java.io.*;
 import java.util.zip.GZIPInputStream;
 
+/**
+ * Unpacks a directory of {@code .xmi.gz} files.
+ * NLPProcessor no longer needs this step: its XMI store reads {@code .xmi.gz} files directly.
+ */
 public class GzipBatchExtractor {
 
     public static void unzipFile(File sourceFile, File targetDir) throws IOException {
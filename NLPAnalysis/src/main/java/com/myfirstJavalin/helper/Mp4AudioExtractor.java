@@ -0,0 +1,590 @@
+package com.myfirstJavalin.helper;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Extracts the AAC audio track of an MP4 file into a stream of ADTS frames, without ffmpeg.
+ * Only the moov box is loaded into memory; the audio samples are copied chunk by chunk from the
+ * positions listed in the sample tables, so the video data is never read.
+ * Fragmented files, other audio codecs and AAC configurations that ADTS cannot express are not
+ * supported; {@link #extract} returns null for them and the caller keeps using the whole file.
+ */
+public class Mp4AudioExtractor {
+    private static final Logger logger = LoggerFactory.getLogger(Mp4AudioExtractor.class);
+    public static final String FILE_EXTENSION = ".aac";
+    private static final int MAX_MOOV_SIZE = 64 * 1024 * 1024;
+    private static final int ADTS_HEADER_SIZE = 7;
+    private static final int MAX_ADTS_FRAME_SIZE = 8191;
+    private static final int OBJECT_TYPE_MPEG4_AUDIO = 0x40;
+
+    /**
+     * Properties of an extracted audio track.
+     */
+    public static class AudioTrack {
+        private final int sampleRate;
+        private final int channels;
+        private final int frames;
+        private final long bytes;
+        private final double durationSeconds;
+
+        AudioTrack(int sampleRate, int channels, int frames, long bytes, double durationSeconds) {
+            this.sampleRate = sampleRate;
+            this.channels = channels;
+            this.frames = frames;
+            this.bytes = bytes;
+            this.durationSeconds = durationSeconds;
+        }
+
+        public int getSampleRate() {
+            return sampleRate;
+        }
+
+        public int getChannels() {
+            return channels;
+        }
+
+        public int getFrames() {
+            return frames;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public double getDurationSeconds() {
+            return durationSeconds;
+        }
+
+        public Document toDocument() {
+            return new Document("codec", "aac")
+                    .append("container", "adts")
+                    .append("sample_rate", sampleRate)
+                    .append("channels", channels)
+                    .append("frames", frames)
+                    .append("bytes", bytes)
+                    .append("duration_seconds", durationSeconds);
+        }
+    }
+
+    /** Sample tables and decoder configuration of the sound track. */
+    private static class SoundTrack {
+        long timescale;
+        long duration;
+        int objectType;
+        int frequencyIndex = -1;
+        int channelConfiguration;
+        int[] sampleSizes;
+        int fixedSampleSize;
+        int sampleCount;
+        long[] chunkOffsets;
+        int[] stscFirstChunk;
+        int[] stscSamplesPerChunk;
+    }
+
+    private static final int[] SAMPLE_RATES = {96000, 88200, 64000, 48000, 44100, 32000, 24000, 22050,
+            16000, 12000, 11025, 8000, 7350};
+
+    private Mp4AudioExtractor() {
+    }
+
+    /**
+     * Writes the AAC track of an MP4 file as ADTS to the target file.
+     *
+     * @param mp4 the MP4 file
+     * @param target the ADTS file to create
+     * @return the extracted track, or null if the file has no AAC track that can be extracted;
+     *         the caller then sends the whole video
+     * @throws IOException if a file cannot be read or written
+     */
+    public static AudioTrack extract(Path mp4, Path target) throws IOException {
+        try (FileChannel channel = FileChannel.open(mp4, StandardOpenOption.READ)) {
+            SoundTrack track = readSoundTrack(channel, mp4, true);
+            if (track == null) {
+                return null;
+            }
+            try {
+                return writeAdts(channel, track, target);
+            } catch (IllegalStateException | IndexOutOfBoundsException e) {
+                logger.warn("Cannot extract the audio of {}: {}", mp4, e.getMessage());
+                Files.deleteIfExists(target);
+                return null;
+            } catch (IOException e) {
+                Files.deleteIfExists(target);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Computes the size of the ADTS file {@link #extract} would write, from the sample tables only.
+     *
+     * @param mp4 the MP4 file
+     * @return the size in bytes, or -1 if the file has no AAC track that can be extracted
+     * @throws IOException if the file cannot be read
+     */
+    public static long probeAdtsBytes(Path mp4) throws IOException {
+        try (FileChannel channel = FileChannel.open(mp4, StandardOpenOption.READ)) {
+            SoundTrack track = readSoundTrack(channel, mp4, false);
+            if (track == null) {
+                return -1;
+            }
+            long bytes = (long) track.sampleCount * ADTS_HEADER_SIZE;
+            if (track.sampleSizes == null) {
+                return bytes + (long) track.sampleCount * track.fixedSampleSize;
+            }
+            for (int sampleSize : track.sampleSizes) {
+                bytes += sampleSize;
+            }
+            return bytes;
+        }
+    }
+
+    /**
+     * @return the AAC track with its sample tables, or null if there is none that can be extracted
+     */
+    private static SoundTrack readSoundTrack(FileChannel channel, Path mp4, boolean logReason) throws IOException {
+        try {
+            ByteBuffer moov = readTopLevelBox(channel, "moov");
+            if (moov == null) {
+                if (logReason) {
+                    logger.warn("No moov box in {}", mp4);
+                }
+                return null;
+            }
+            SoundTrack track = findSoundTrack(moov);
+            if (track == null) {
+                if (logReason) {
+                    logger.warn("No extractable AAC track in {}", mp4);
+                }
+                return null;
+            }
+            if (track.sampleCount == 0 || track.chunkOffsets == null || track.stscFirstChunk == null) {
+                // Fragmented files keep their samples in moof boxes
+                if (logReason) {
+                    logger.warn("No sample tables for the audio track of {}", mp4);
+                }
+                return null;
+            }
+            if (maxSampleSize(track) + ADTS_HEADER_SIZE > MAX_ADTS_FRAME_SIZE) {
+                if (logReason) {
+                    logger.warn("AAC frames of {} do not fit into ADTS frames", mp4);
+                }
+                return null;
+            }
+            return track;
+        } catch (IllegalStateException | java.nio.BufferUnderflowException | IndexOutOfBoundsException e) {
+            if (logReason) {
+                logger.warn("Cannot extract the audio of {}: {}", mp4, e.getMessage());
+            }
+            return null;
+        }
+    }
+
+    private static AudioTrack writeAdts(FileChannel channel, SoundTrack track, Path target) throws IOException {
+        byte[] header = new byte[ADTS_HEADER_SIZE];
+        ByteBuffer chunk = ByteBuffer.allocate(64 * 1024);
+        int sample = 0;
+        long written = 0;
+        int stscIndex = 0;
+
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(target), 256 * 1024)) {
+            for (int chunkIndex = 0; chunkIndex < track.chunkOffsets.length && sample < track.sampleCount; chunkIndex++) {
+                while (stscIndex + 1 < track.stscFirstChunk.length && track.stscFirstChunk[stscIndex + 1] <= chunkIndex + 1) {
+                    stscIndex++;
+                }
+                int samplesInChunk = Math.min(track.stscSamplesPerChunk[stscIndex], track.sampleCount - sample);
+
+                long chunkSize = 0;
+                for (int i = 0; i < samplesInChunk; i++) {
+                    chunkSize += sampleSize(track, sample + i);
+                }
+                if (chunkSize > chunk.capacity()) {
+                    chunk = ByteBuffer.allocate((int) chunkSize);
+                }
+                chunk.clear().limit((int) chunkSize);
+                long position = track.chunkOffsets[chunkIndex];
+                while (chunk.hasRemaining()) {
+                    if (channel.read(chunk, position + chunk.position()) < 0) {
+                        throw new IllegalStateException("Audio chunk beyond the end of the file");
+                    }
+                }
+
+                int offset = 0;
+                for (int i = 0; i < samplesInChunk; i++, sample++) {
+                    int size = sampleSize(track, sample);
+                    writeAdtsHeader(header, track, size + ADTS_HEADER_SIZE);
+                    out.write(header);
+                    out.write(chunk.array(), offset, size);
+                    offset += size;
+                    written += size + ADTS_HEADER_SIZE;
+                }
+            }
+        }
+
+        double duration = track.timescale > 0 ? (double) track.duration / track.timescale : 0;
+        return new AudioTrack(SAMPLE_RATES[track.frequencyIndex], track.channelConfiguration, sample, written, duration);
+    }
+
+    private static int sampleSize(SoundTrack track, int sample) {
+        return track.fixedSampleSize != 0 ? track.fixedSampleSize : track.sampleSizes[sample];
+    }
+
+    private static int maxSampleSize(SoundTrack track) {
+        if (track.sampleSizes == null) {
+            return track.fixedSampleSize;
+        }
+        int max = 0;
+        for (int size : track.sampleSizes) {
+            max = Math.max(max, size);
+        }
+        return max;
+    }
+
+    private static void writeAdtsHeader(byte[] header, SoundTrack track, int frameLength) {
+        int profile = track.objectType - 1;
+        header[0] = (byte) 0xFF;
+        header[1] = (byte) 0xF1; // MPEG-4, no CRC
+        header[2] = (byte) ((profile << 6) | (track.frequencyIndex << 2) | (track.channelConfiguration >> 2));
+        header[3] = (byte) (((track.channelConfiguration & 3) << 6) | (frameLength >> 11));
+        header[4] = (byte) ((frameLength >> 3) & 0xFF);
+        header[5] = (byte) (((frameLength & 7) << 5) | 0x1F);
+        header[6] = (byte) 0xFC;
+    }
+
+    /**
+     * Reads a top-level box into memory, skipping all others (in particular mdat) by their size.
+     *
+     * @throws IllegalStateException if the box is too large to read or truncated
+     */
+    private static ByteBuffer readTopLevelBox(FileChannel channel, String type) throws IOException {
+        long position = 0;
+        long fileSize = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(16);
+        while (position + 8 <= fileSize) {
+            header.clear().limit(8);
+            channel.read(header, position);
+            header.flip();
+            long size = header.getInt() & 0xFFFFFFFFL;
+            String boxType = fourCc(header);
+            int headerSize = 8;
+            if (size == 1) {
+                header.clear().limit(8);
+                channel.read(header, position + 8);
+                header.flip();
+                size = header.getLong();
+                headerSize = 16;
+            } else if (size == 0) {
+                size = fileSize - position;
+            }
+            if (size < headerSize) {
+                return null;
+            }
+
+            if (boxType.equals(type)) {
+                if (size - headerSize > MAX_MOOV_SIZE) {
+                    throw new IllegalStateException(type + " box too large: " + size + " bytes");
+                }
+                ByteBuffer box = ByteBuffer.allocate((int) (size - headerSize));
+                while (box.hasRemaining()) {
+                    if (channel.read(box, position + headerSize + box.position()) < 0) {
+                        throw new IllegalStateException("Truncated " + type + " box");
+                    }
+                }
+                box.flip();
+                return box;
+            }
+            position += size;
+        }
+        return null;
+    }
+
+    /**
+     * Looks for the first sound track with an AAC sample description.
+     */
+    private static SoundTrack findSoundTrack(ByteBuffer moov) {
+        for (ByteBuffer trak : children(moov, "trak")) {
+            ByteBuffer mdia = child(trak, "mdia");
+            ByteBuffer hdlr = mdia != null ? child(mdia, "hdlr") : null;
+            if (hdlr == null || !"soun".equals(fourCcAt(hdlr, 8))) {
+                continue;
+            }
+            ByteBuffer stbl = path(mdia, "minf", "stbl");
+            ByteBuffer stsd = stbl != null ? child(stbl, "stsd") : null;
+            if (stsd == null) {
+                continue;
+            }
+
+            SoundTrack track = new SoundTrack();
+            if (!readSampleDescription(stsd, track)) {
+                continue;
+            }
+            readMediaHeader(child(mdia, "mdhd"), track);
+            readSampleTables(stbl, track);
+            return track;
+        }
+        return null;
+    }
+
+    private static void readMediaHeader(ByteBuffer mdhd, SoundTrack track) {
+        if (mdhd == null) {
+            return;
+        }
+        int version = mdhd.get(0) & 0xFF;
+        if (version == 1) {
+            track.timescale = mdhd.getInt(20) & 0xFFFFFFFFL;
+            track.duration = mdhd.getLong(24);
+        } else {
+            track.timescale = mdhd.getInt(12) & 0xFFFFFFFFL;
+            track.duration = mdhd.getInt(16) & 0xFFFFFFFFL;
+        }
+    }
+
+    private static boolean readSampleDescription(ByteBuffer stsd, SoundTrack track) {
+        // version/flags, entry count, then the first sample entry
+        ByteBuffer entry = slice(stsd, 8, stsd.limit() - 8);
+        String format = fourCcAt(entry, 4);
+        if (!"mp4a".equals(format)) {
+            return false;
+        }
+        // Sample entry header (8), reserved and data reference index (8), then the
+        // sound description, which QuickTime files extend by version
+        int soundVersion = entry.getShort(16) & 0xFFFF;
+        int childrenOffset = 8 + 8 + 20 + (soundVersion == 1 ? 16 : soundVersion == 2 ? 36 : 0);
+        ByteBuffer entryChildren = slice(entry, childrenOffset, entry.getInt(0) - childrenOffset);
+
+        ByteBuffer esds = child(entryChildren, "esds");
+        if (esds == null) {
+            ByteBuffer wave = child(entryChildren, "wave");
+            esds = wave != null ? child(wave, "esds") : null;
+        }
+        return esds != null && readEsds(esds, track);
+    }
+
+    /**
+     * Reads the AudioSpecificConfig from the ES descriptor (ISO/IEC 14496-1, 14496-3).
+     */
+    private static boolean readEsds(ByteBuffer esds, SoundTrack track) {
+        ByteBuffer in = slice(esds, 4, esds.limit() - 4);
+        if ((in.get() & 0xFF) != 0x03) {
+            return false;
+        }
+        descriptorLength(in);
+        in.getShort(); // ES_ID
+        int flags = in.get() & 0xFF;
+        if ((flags & 0x80) != 0) {
+            in.getShort();
+        }
+        if ((flags & 0x40) != 0) {
+            in.position(in.position() + (in.get() & 0xFF));
+        }
+        if ((flags & 0x20) != 0) {
+            in.getShort();
+        }
+
+        if ((in.get() & 0xFF) != 0x04) {
+            return false;
+        }
+        descriptorLength(in);
+        if ((in.get() & 0xFF) != OBJECT_TYPE_MPEG4_AUDIO) {
+            return false;
+        }
+        in.position(in.position() + 12); // stream type, buffer size, bitrates
+        if ((in.get() & 0xFF) != 0x05) {
+            return false;
+        }
+        int length = descriptorLength(in);
+        byte[] config = new byte[length];
+        in.get(config);
+
+        BitReader bits = new BitReader(config);
+        int objectType = readObjectType(bits);
+        int frequencyIndex = bits.read(4);
+        if (frequencyIndex == 15) {
+            return false;
+        }
+        int channelConfiguration = bits.read(4);
+        if (objectType == 5 || objectType == 29) {
+            // Explicit SBR/PS signalling: ADTS carries the core AAC stream, decoders detect SBR implicitly
+            if (bits.read(4) == 15) {
+                bits.read(24);
+            }
+            objectType = readObjectType(bits);
+        }
+
+        // ADTS has two bits for the profile (Main, LC, SSR, LTP) and no program config element
+        if (objectType < 1 || objectType > 4 || channelConfiguration == 0 || frequencyIndex >= SAMPLE_RATES.length) {
+            return false;
+        }
+        track.objectType = objectType;
+        track.frequencyIndex = frequencyIndex;
+        track.channelConfiguration = channelConfiguration;
+        return true;
+    }
+
+    private static int readObjectType(BitReader bits) {
+        int objectType = bits.read(5);
+        return objectType == 31 ? 32 + bits.read(6) : objectType;
+    }
+
+    private static int descriptorLength(ByteBuffer in) {
+        int length = 0;
+        for (int i = 0; i < 4; i++) {
+            int b = in.get() & 0xFF;
+            length = (length << 7) | (b & 0x7F);
+            if ((b & 0x80) == 0) {
+                break;
+            }
+        }
+        return length;
+    }
+
+    private static void readSampleTables(ByteBuffer stbl, SoundTrack track) {
+        ByteBuffer stsz = child(stbl, "stsz");
+        if (stsz != null) {
+            track.fixedSampleSize = stsz.getInt(4);
+            track.sampleCount = stsz.getInt(8);
+            if (track.fixedSampleSize == 0) {
+                track.sampleSizes = new int[track.sampleCount];
+                for (int i = 0; i < track.sampleCount; i++) {
+                    track.sampleSizes[i] = stsz.getInt(12 + 4 * i);
+                }
+            }
+        }
+
+        ByteBuffer stsc = child(stbl, "stsc");
+        if (stsc != null) {
+            int entries = stsc.getInt(4);
+            track.stscFirstChunk = new int[entries];
+            track.stscSamplesPerChunk = new int[entries];
+            for (int i = 0; i < entries; i++) {
+                track.stscFirstChunk[i] = stsc.getInt(8 + 12 * i);
+                track.stscSamplesPerChunk[i] = stsc.getInt(12 + 12 * i);
+            }
+            if (entries == 0) {
+                track.stscFirstChunk = null;
+            }
+        }
+
+        ByteBuffer stco = child(stbl, "stco");
+        if (stco != null) {
+            int count = stco.getInt(4);
+            track.chunkOffsets = new long[count];
+            for (int i = 0; i < count; i++) {
+                track.chunkOffsets[i] = stco.getInt(8 + 4 * i) & 0xFFFFFFFFL;
+            }
+        } else {
+            ByteBuffer co64 = child(stbl, "co64");
+            if (co64 != null) {
+                int count = co64.getInt(4);
+                track.chunkOffsets = new long[count];
+                for (int i = 0; i < count; i++) {
+                    track.chunkOffsets[i] = co64.getLong(8 + 8 * i);
+                }
+            }
+        }
+    }
+
+    private static ByteBuffer path(ByteBuffer box, String... types) {
+        ByteBuffer current = box;
+        for (String type : types) {
+            if (current == null) {
+                return null;
+            }
+            current = child(current, type);
+        }
+        return current;
+    }
+
+    private static ByteBuffer child(ByteBuffer container, String type) {
+        List<ByteBuffer> found = children(container, type);
+        return found.isEmpty() ? null : found.get(0);
+    }
+
+    /**
+     * Payloads of the direct child boxes of the given type.
+     */
+    private static List<ByteBuffer> children(ByteBuffer container, String type) {
+        List<ByteBuffer> found = new ArrayList<>();
+        int position = 0;
+        while (position + 8 <= container.limit()) {
+            long size = container.getInt(position) & 0xFFFFFFFFL;
+            String boxType = fourCcAt(container, position + 4);
+            int headerSize = 8;
+            if (size == 1) {
+                size = container.getLong(position + 8);
+                headerSize = 16;
+            } else if (size == 0) {
+                size = container.limit() - position;
+            }
+            if (size < headerSize || position + size > container.limit()) {
+                break;
+            }
+            if (boxType.equals(type)) {
+                found.add(slice(container, position + headerSize, (int) size - headerSize));
+            }
+            position += (int) size;
+        }
+        return found;
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > buffer.limit()) {
+            throw new IllegalStateException("Box exceeds its container");
+        }
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position(offset).limit(offset + length);
+        return duplicate.slice();
+    }
+
+    private static String fourCc(ByteBuffer buffer) {
+        byte[] type = new byte[4];
+        buffer.get(type);
+        return new String(type, StandardCharsets.ISO_8859_1);
+    }
+
+    private static String fourCcAt(ByteBuffer buffer, int offset) {
+        if (offset + 4 > buffer.limit()) {
+            return "";
+        }
+        byte[] type = new byte[4];
+        for (int i = 0; i < 4; i++) {
+            type[i] = buffer.get(offset + i);
+        }
+        return new String(type, StandardCharsets.ISO_8859_1);
+    }
+
+    /** MSB-first bit reader for the AudioSpecificConfig. */
+    private static class BitReader {
+        private final byte[] data;
+        private int position;
+
+        BitReader(byte[] data) {
+            this.data = data;
+        }
+
+        int read(int count) {
+            int value = 0;
+            for (int i = 0; i < count; i++, position++) {
+                if (position / 8 >= data.length) {
+                    throw new IllegalStateException("AudioSpecificConfig too short");
+                }
+                value = (value << 1) | ((data[position / 8] >> (7 - position % 8)) & 1);
+            }
+            return value;
+        }
+    }
+}
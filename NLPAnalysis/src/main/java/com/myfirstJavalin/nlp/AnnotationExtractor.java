@@ -0,0 +1,305 @@
+package com.myfirstJavalin.nlp;
+
+import de.tudarmstadt.ukp.dkpro.core.api.ner.type.NamedEntity;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Sentence;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
+import de.tudarmstadt.ukp.dkpro.core.api.syntax.type.dependency.Dependency;
+import org.apache.uima.fit.util.JCasUtil;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.tcas.Annotation;
+import org.bson.Document;
+import org.hucompute.textimager.uima.type.Sentiment;
+import org.hucompute.textimager.uima.type.category.CategoryCoveredTagged;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Extracts the annotations of a processed CAS into the document stored on a speech.
+ * Tokens, dependencies and sentiments are assigned to their sentences in one sweep per type
+ * over the offset-ordered annotations instead of a covered-selection per sentence, and
+ * duplicates are detected with packed primitive keys.
+ */
+public class AnnotationExtractor {
+    private static final Logger logger = LoggerFactory.getLogger(AnnotationExtractor.class);
+
+    /**
+     * Extracts all annotations from a document CAS.
+     *
+     * @param jCas The document CAS
+     * @return Document containing all annotations
+     */
+    public Document extract(JCas jCas) {
+        List<Sentence> sentences = new ArrayList<>(JCasUtil.select(jCas, Sentence.class));
+        Annotation[] tokens = JCasUtil.select(jCas, Token.class).toArray(new Annotation[0]);
+        Annotation[] dependencies = JCasUtil.select(jCas, Dependency.class).toArray(new Annotation[0]);
+        Annotation[] sentiments = JCasUtil.select(jCas, Sentiment.class).toArray(new Annotation[0]);
+
+        List<Document> tokenDocs = new ArrayList<>(tokens.length);
+        List<Document> sentenceDocs = new ArrayList<>(sentences.size());
+        List<Document> namedEntityDocs = new ArrayList<>();
+        List<Document> dependencyDocs = new ArrayList<>();
+        List<Document> sentimentDocs = new ArrayList<>();
+        List<Document> topicsList = new ArrayList<>();
+        Map<String, CategoryCoveredTagged> highestScoreTopic = new HashMap<>();
+
+        // Process sentences and contained annotations
+        double sentimentSum = 0.0;
+        int sentimentCount = 0;
+
+        // Track which annotations have been processed to prevent duplicates
+        LongHashSet processedSentiments = new LongHashSet(sentiments.length);
+        SpanKeySet processedEntities = new SpanKeySet();
+        SpanKeySet processedDependencies = new SpanKeySet();
+
+        // Sentences come in begin order, so the first annotation that can lie in a sentence only moves forward
+        CoverageCursor tokenCursor = new CoverageCursor(tokens);
+        CoverageCursor dependencyCursor = new CoverageCursor(dependencies);
+        CoverageCursor sentimentCursor = new CoverageCursor(sentiments);
+
+        for (Sentence sentence : sentences) {
+            int begin = sentence.getBegin();
+            int end = sentence.getEnd();
+
+            // Process sentence
+            Document sentenceDoc = new Document()
+                    .append("text", sentence.getCoveredText())
+                    .append("begin", begin)
+                    .append("end", end);
+
+            // Process tokens in this sentence
+            int tokenCount = 0;
+            for (int i = tokenCursor.first(begin); i < tokens.length && tokens[i].getBegin() <= end; i++) {
+                if (tokens[i].getEnd() <= end) {
+                    tokenCount++;
+                }
+            }
+            sentenceDoc.append("tokenCount", tokenCount);
+            sentenceDocs.add(sentenceDoc);
+
+            for (int i = tokenCursor.first(begin); i < tokens.length && tokens[i].getBegin() <= end; i++) {
+                Token t = (Token) tokens[i];
+                if (t.getEnd() > end) {
+                    continue;
+                }
+                Document tokenDoc = new Document()
+                        .append("lemmaValue", t.getLemmaValue())
+                        .append("pos", t.getPosValue())
+                        .append("text", t.getText())
+                        .append("begin", t.getBegin())
+                        .append("end", t.getEnd());
+                tokenDocs.add(tokenDoc);
+            }
+
+            // Process dependencies in this sentence, skipping duplicates
+            for (int i = dependencyCursor.first(begin); i < dependencies.length && dependencies[i].getBegin() <= end; i++) {
+                Dependency dep = (Dependency) dependencies[i];
+                if (dep.getEnd() > end || dep.getDependencyType() == null) {
+                    continue;
+                }
+                if (processedDependencies.add(dep.getBegin(), dep.getEnd(), dep.getDependencyType())) {
+                    Document dependencyDoc = new Document()
+                            .append("dependencyType", dep.getDependencyType())
+                            .append("text", dep.getCoveredText())
+                            .append("begin", dep.getBegin())
+                            .append("end", dep.getEnd());
+                    dependencyDocs.add(dependencyDoc);
+                }
+            }
+
+            // Process sentiment in this sentence, skipping duplicates
+            for (int i = sentimentCursor.first(begin); i < sentiments.length && sentiments[i].getBegin() <= end; i++) {
+                Sentiment sentiment = (Sentiment) sentiments[i];
+                if (sentiment.getEnd() > end) {
+                    continue;
+                }
+                if (processedSentiments.add(span(sentiment.getBegin(), sentiment.getEnd()))) {
+                    double sentimentValue = sentiment.getSentiment();
+                    sentimentSum += sentimentValue;
+                    sentimentCount++;
+
+                    Document sentimentDoc = new Document()
+                            .append("sentiment_value", sentimentValue)
+                            .append("sentence", sentiment.getCoveredText())
+                            .append("begin", sentiment.getBegin())
+                            .append("end", sentiment.getEnd());
+                    sentimentDocs.add(sentimentDoc);
+                }
+            }
+        }
+
+        // Process named entities, skipping duplicates
+        for (NamedEntity ne : JCasUtil.select(jCas, NamedEntity.class)) {
+            if (ne.getValue() != null && processedEntities.add(ne.getBegin(), ne.getEnd(), ne.getValue())) {
+                Document neDoc = new Document()
+                        .append("value", ne.getValue())
+                        .append("text", ne.getCoveredText())
+                        .append("begin", ne.getBegin())
+                        .append("end", ne.getEnd());
+                namedEntityDocs.add(neDoc);
+            }
+        }
+
+        // Process topic annotations, keeping the best scored topic per span
+        JCasUtil.select(jCas, CategoryCoveredTagged.class).forEach(topic -> {
+            if (topic.getValue() != null) {
+                String sentence = topic.getBegin() + "-" + topic.getEnd();
+
+                if (!highestScoreTopic.containsKey(sentence) ||
+                        topic.getScore() > highestScoreTopic.get(sentence).getScore()) {
+                    highestScoreTopic.put(sentence, topic);
+                }
+            }
+        });
+
+        for (CategoryCoveredTagged highestTopic : highestScoreTopic.values()) {
+            Document topicDoc = new Document("topic", highestTopic.getValue())
+                    .append("score", highestTopic.getScore())
+                    .append("begin", highestTopic.getBegin())
+                    .append("end", highestTopic.getEnd());
+            topicsList.add(topicDoc);
+        }
+
+        // Calculate average sentiment
+        double averageSentiment = sentimentCount > 0 ? sentimentSum / sentimentCount : 0.0;
+
+        // Create a document with all annotations
+        Document result = new Document()
+                .append("token", tokenDocs)
+                .append("sentence", sentenceDocs)
+                .append("namedEntities", namedEntityDocs)
+                .append("dependency", dependencyDocs)
+                .append("sentiment", sentimentDocs)
+                .append("average_sentiment", averageSentiment)
+                .append("topics", topicsList);
+
+        logger.info("Extracted counts - Sentences: {}, Tokens: {}, NEs: {}, Dependencies: {}, Sentiments: {}, Topics: {}",
+                sentenceDocs.size(), tokenDocs.size(), namedEntityDocs.size(),
+                dependencyDocs.size(), sentimentDocs.size(), topicsList.size());
+
+        return result;
+    }
+
+    static long span(int begin, int end) {
+        return ((long) begin << 32) | (end & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Position in an offset-ordered annotation array. For a sentence it returns the first
+     * annotation that begins inside or after it; since sentences are visited in begin order,
+     * the cursor never moves back and every array is swept once for non-overlapping sentences.
+     */
+    static final class CoverageCursor {
+        private final Annotation[] annotations;
+        private int position;
+
+        CoverageCursor(Annotation[] annotations) {
+            this.annotations = annotations;
+        }
+
+        int first(int sentenceBegin) {
+            while (position < annotations.length && annotations[position].getBegin() < sentenceBegin) {
+                position++;
+            }
+            return position;
+        }
+    }
+
+    /**
+     * Set of (begin, end, label) keys. Labels are mapped to small ids, and the key is packed
+     * into one long as long as offsets fit into 24 bits, which covers any realistic speech.
+     */
+    static final class SpanKeySet {
+        private static final int OFFSET_BITS = 24;
+        private static final int LABEL_BITS = 16;
+
+        private final Map<String, Integer> labelIds = new HashMap<>();
+        private final LongHashSet packed = new LongHashSet(64);
+        private Set<List<Object>> overflow;
+
+        boolean add(int begin, int end, String label) {
+            Integer labelId = labelIds.computeIfAbsent(label, key -> labelIds.size());
+            if (begin >>> OFFSET_BITS == 0 && end >>> OFFSET_BITS == 0 && labelId >>> LABEL_BITS == 0) {
+                return packed.add(((long) begin << (OFFSET_BITS + LABEL_BITS))
+                        | ((long) end << LABEL_BITS)
+                        | labelId);
+            }
+            if (overflow == null) {
+                overflow = new HashSet<>();
+            }
+            return overflow.add(Arrays.asList(begin, end, label));
+        }
+    }
+
+    /**
+     * Open-addressing hash set of longs, avoiding a boxed Long per entry.
+     */
+    static final class LongHashSet {
+        private static final long EMPTY = Long.MIN_VALUE;
+
+        private long[] table;
+        private int size;
+        private boolean containsEmpty;
+
+        LongHashSet(int expectedSize) {
+            int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2 - 1)) << 1;
+            table = new long[capacity];
+            Arrays.fill(table, EMPTY);
+        }
+
+        /**
+         * @return true if the value was not in the set yet
+         */
+        boolean add(long value) {
+            if (value == EMPTY) {
+                if (containsEmpty) {
+                    return false;
+                }
+                containsEmpty = true;
+                return true;
+            }
+
+            int mask = table.length - 1;
+            int index = mix(value) & mask;
+            while (table[index] != EMPTY) {
+                if (table[index] == value) {
+                    return false;
+                }
+                index = (index + 1) & mask;
+            }
+            table[index] = value;
+            if (++size * 2 > table.length) {
+                grow();
+            }
+            return true;
+        }
+
+        private void grow() {
+            long[] old = table;
+            table = new long[old.length * 2];
+            Arrays.fill(table, EMPTY);
+            int mask = table.length - 1;
+            for (long value : old) {
+                if (value != EMPTY) {
+                    int index = mix(value) & mask;
+                    while (table[index] != EMPTY) {
+                        index = (index + 1) & mask;
+                    }
+                    table[index] = value;
+                }
+            }
+        }
+
+        private static int mix(long value) {
+            long h = value * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
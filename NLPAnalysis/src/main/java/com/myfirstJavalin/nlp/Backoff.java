@@ -0,0 +1,45 @@
+package com.myfirstJavalin.nlp;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Exponential backoff with jitter between retries of a remote call.
+ * The delay grows as base * 2^(attempt - 1) up to a cap; half of it is randomized
+ * so workers that failed together do not retry in lockstep.
+ */
+public class Backoff {
+    private final long baseMillis;
+    private final long maxMillis;
+
+    /**
+     * @param baseMillis delay before the first retry
+     * @param maxMillis maximum delay
+     */
+    public Backoff(long baseMillis, long maxMillis) {
+        this.baseMillis = baseMillis;
+        this.maxMillis = Math.max(baseMillis, maxMillis);
+    }
+
+    /**
+     * Computes the delay before a retry.
+     *
+     * @param attempt number of the failed attempt, starting at 1
+     * @return delay in milliseconds
+     */
+    public long delayMillis(int attempt) {
+        int shift = Math.min(Math.max(attempt - 1, 0), 30);
+        long delay = Math.min(maxMillis, baseMillis << shift);
+        long half = delay / 2;
+        return half + ThreadLocalRandom.current().nextLong(half + 1);
+    }
+
+    /**
+     * Sleeps for the delay of the given attempt.
+     *
+     * @param attempt number of the failed attempt, starting at 1
+     * @throws InterruptedException if interrupted while sleeping
+     */
+    public void pause(int attempt) throws InterruptedException {
+        Thread.sleep(delayMillis(attempt));
+    }
+}
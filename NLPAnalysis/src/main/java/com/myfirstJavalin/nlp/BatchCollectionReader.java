@@ -0,0 +1,68 @@
+package com.myfirstJavalin.nlp;
+
+import de.tudarmstadt.ukp.dkpro.core.api.metadata.type.DocumentMetaData;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.util.CasCopier;
+import org.texttechnologylab.DockerUnifiedUIMAInterface.io.DUUICollectionReader;
+import org.texttechnologylab.DockerUnifiedUIMAInterface.monitoring.AdvancedProgressMeter;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * DUUI collection reader over an in-memory batch of document CASes.
+ * The composer asks for one CAS after the other and gets a copy of the next document;
+ * {@link BatchResultCollector} copies the annotated result back into the original CAS.
+ */
+public class BatchCollectionReader implements DUUICollectionReader {
+    private final Iterator<JCas> documents;
+    private final long size;
+    private final AtomicLong done = new AtomicLong(0);
+    private final AdvancedProgressMeter progress;
+
+    /**
+     * @param documents the documents of the batch; each must carry a unique DocumentMetaData id
+     */
+    public BatchCollectionReader(List<JCas> documents) {
+        this.documents = documents.iterator();
+        this.size = documents.size();
+        this.progress = new AdvancedProgressMeter(size);
+    }
+
+    @Override
+    public AdvancedProgressMeter getProgress() {
+        return progress;
+    }
+
+    @Override
+    public synchronized void getNextCas(JCas empty) {
+        JCas next = documents.next();
+        CasCopier.copyCas(next.getCas(), empty.getCas(), true);
+        done.incrementAndGet();
+        progress.inc();
+    }
+
+    @Override
+    public synchronized boolean hasNext() {
+        return documents.hasNext();
+    }
+
+    @Override
+    public long getSize() {
+        return size;
+    }
+
+    @Override
+    public long getDone() {
+        return done.get();
+    }
+
+    /**
+     * @param jCas a document CAS
+     * @return the id under which the document is collected
+     */
+    static String documentKey(JCas jCas) {
+        return DocumentMetaData.get(jCas).getDocumentId();
+    }
+}
@@ -0,0 +1,63 @@
+package com.myfirstJavalin.nlp;
+
+import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.fit.component.JCasAnnotator_ImplBase;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.util.CasCopier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Last engine of a batch composer. The composer reuses its own CASes, so every annotated
+ * document is copied back into the CAS it was read from, which is looked up by document id.
+ * Documents are registered before the batch runs and removed once collected, so after a
+ * failed batch the documents still registered are exactly the ones without a result.
+ */
+public class BatchResultCollector extends JCasAnnotator_ImplBase {
+    private static final Logger logger = LoggerFactory.getLogger(BatchResultCollector.class);
+    private static final Map<String, JCas> PENDING = new ConcurrentHashMap<>();
+
+    /**
+     * Registers a document CAS that expects a result.
+     *
+     * @param key document id
+     * @param target the CAS that receives the result
+     */
+    public static void register(String key, JCas target) {
+        PENDING.put(key, target);
+    }
+
+    /**
+     * Removes a document that is no longer expected.
+     *
+     * @param key document id
+     * @return true if the document had not been collected yet
+     */
+    public static boolean unregister(String key) {
+        return PENDING.remove(key) != null;
+    }
+
+    /**
+     * @param key document id
+     * @return true if the document is registered and has not been collected yet
+     */
+    public static boolean isPending(String key) {
+        return PENDING.containsKey(key);
+    }
+
+    @Override
+    public void process(JCas jCas) throws AnalysisEngineProcessException {
+        String key = BatchCollectionReader.documentKey(jCas);
+        JCas target = PENDING.remove(key);
+        if (target == null) {
+            logger.warn("Received a result for unknown document {}", key);
+            return;
+        }
+
+        target.reset();
+        CasCopier.copyCas(jCas.getCas(), target.getCas(), true);
+    }
+}
@@ -0,0 +1,81 @@
+package com.myfirstJavalin.nlp;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.SerialFormat;
+import org.apache.uima.util.CasIOUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Stores every CAS in UIMA's compressed binary form 6 ({@code <docId>.bcas}).
+ * The type system is written only once per directory ({@code typesystem.tsi}) and
+ * each document is saved without it, which keeps the files several times smaller
+ * than XMI and much faster to (de)serialize.
+ * A directory is bound to the type system it was first written with.
+ */
+public class BinaryCasStore implements CasStore {
+    private static final String TYPE_SYSTEM_FILE = "typesystem.tsi";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path directory;
+    private final Path typeSystemPath;
+    private volatile byte[] typeSystemBytes;
+
+    public BinaryCasStore(Path directory) throws IOException {
+        this.directory = directory;
+        this.typeSystemPath = directory.resolve(TYPE_SYSTEM_FILE);
+        Files.createDirectories(directory);
+        if (Files.exists(typeSystemPath)) {
+            typeSystemBytes = Files.readAllBytes(typeSystemPath);
+        }
+    }
+
+    @Override
+    public boolean exists(String docId) {
+        return Files.exists(getPath(docId));
+    }
+
+    @Override
+    public Path getPath(String docId) {
+        return directory.resolve(docId + ".bcas");
+    }
+
+    @Override
+    public void save(String docId, CAS cas) throws IOException {
+        ensureTypeSystem(cas);
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(getPath(docId)), BUFFER_SIZE)) {
+            CasIOUtils.save(cas, out, SerialFormat.COMPRESSED_FILTERED);
+        }
+    }
+
+    @Override
+    public void load(String docId, CAS cas) throws IOException {
+        if (typeSystemBytes == null) {
+            throw new IOException("No type system stored in " + directory);
+        }
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(getPath(docId)), BUFFER_SIZE);
+             InputStream tsi = new ByteArrayInputStream(typeSystemBytes)) {
+            CasIOUtils.load(in, tsi, cas);
+        }
+    }
+
+    /**
+     * Writes the type system of the store on the first save.
+     */
+    private synchronized void ensureTypeSystem(CAS cas) throws IOException {
+        if (typeSystemBytes != null) {
+            return;
+        }
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(typeSystemPath))) {
+            CasIOUtils.writeTypeSystem(cas, out, true);
+        }
+        typeSystemBytes = Files.readAllBytes(typeSystemPath);
+    }
+}
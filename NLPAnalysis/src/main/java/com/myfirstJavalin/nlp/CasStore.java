@@ -0,0 +1,79 @@
+package com.myfirstJavalin.nlp;
+
+import org.apache.uima.cas.CAS;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Storage for serialized CAS documents, one file per speech.
+ * The format is chosen per deployment through {@code nlp.cas.format}.
+ */
+public interface CasStore {
+
+    /**
+     * Checks whether a serialized CAS exists for the document.
+     *
+     * @param docId the document id
+     * @return true if the document has been stored
+     */
+    boolean exists(String docId);
+
+    /**
+     * Resolves the file a document is stored in.
+     *
+     * @param docId the document id
+     * @return path of the stored file
+     */
+    Path getPath(String docId);
+
+    /**
+     * Serializes a CAS for the document, replacing any previous version.
+     *
+     * @param docId the document id
+     * @param cas the CAS to store
+     * @throws IOException if writing fails
+     */
+    void save(String docId, CAS cas) throws IOException;
+
+    /**
+     * Deserializes the stored document into an empty CAS.
+     *
+     * @param docId the document id
+     * @param cas the CAS to fill
+     * @throws IOException if reading fails
+     */
+    void load(String docId, CAS cas) throws IOException;
+
+    /**
+     * Reads text, language and metadata of a stored document without building a CAS.
+     *
+     * @param docId the document id
+     * @return what the stored document contains, or null if the format needs a full
+     *         {@link #load(String, CAS)} instead
+     * @throws IOException if reading fails
+     */
+    default XmiInspector.Result inspect(String docId) throws IOException {
+        return null;
+    }
+
+    /**
+     * Creates the store for a configured format.
+     *
+     * @param format "xmi" or "binary"
+     * @param directory directory holding the files
+     * @param compress whether XMI files are written gzip-compressed; binary files always are
+     * @return the store
+     * @throws IOException if the directory cannot be prepared
+     */
+    static CasStore create(String format, Path directory, boolean compress) throws IOException {
+        switch (format.trim().toLowerCase()) {
+            case "xmi":
+                return new XmiCasStore(directory, compress);
+            case "binary":
+                return new BinaryCasStore(directory);
+            default:
+                throw new IllegalArgumentException("Unknown CAS store format: " + format);
+        }
+    }
+}
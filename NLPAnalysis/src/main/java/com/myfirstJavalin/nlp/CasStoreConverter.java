@@ -0,0 +1,100 @@
+package com.myfirstJavalin.nlp;
+
+import org.apache.uima.UIMAFramework;
+import org.apache.uima.fit.factory.TypeSystemDescriptionFactory;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.resource.metadata.TypeSystemDescription;
+import org.apache.uima.util.CasCreationUtils;
+import org.apache.uima.util.XMLInputSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Converts an existing directory of {@code .xmi} or {@code .xmi.gz} files into a {@link BinaryCasStore}.
+ * Usage: {@code CasStoreConverter <xmiDirectory> <binaryDirectory> [typeSystem.xml]}
+ */
+public class CasStoreConverter {
+    private static final Logger logger = LoggerFactory.getLogger(CasStoreConverter.class);
+    private static final String DEFAULT_TYPE_SYSTEM_PATH = "src/main/resources/TypeSystem.xml";
+
+    /**
+     * Converts all XMI files of the source directory.
+     *
+     * @param sourceDir directory with {@code <docId>.xmi} or {@code <docId>.xmi.gz} files
+     * @param targetDir directory of the binary store
+     * @param typeSystemDescription type system of the documents
+     * @throws Exception if the CAS cannot be created or a directory cannot be read
+     */
+    public static void convert(Path sourceDir, Path targetDir, TypeSystemDescription typeSystemDescription) throws Exception {
+        XmiCasStore source = new XmiCasStore(sourceDir);
+        BinaryCasStore target = new BinaryCasStore(targetDir);
+        CAS cas = CasCreationUtils.createCas(typeSystemDescription, null, null, null);
+
+        int converted = 0;
+        int failed = 0;
+        long xmiBytes = 0;
+        long binaryBytes = 0;
+        long startTime = System.currentTimeMillis();
+
+        // A document stored both plain and compressed is converted once, from the variant the store reads
+        Set<String> docIds = new TreeSet<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(sourceDir, "*.{xmi,xmi.gz}")) {
+            for (Path file : files) {
+                String fileName = file.getFileName().toString();
+                docIds.add(fileName.substring(0, fileName.lastIndexOf(".xmi")));
+            }
+        }
+
+        for (String docId : docIds) {
+            Path file = source.getPath(docId);
+            try {
+                cas.reset();
+                source.load(docId, cas);
+                target.save(docId, cas);
+
+                xmiBytes += Files.size(file);
+                binaryBytes += Files.size(target.getPath(docId));
+                converted++;
+                if (converted % 100 == 0) {
+                    logger.info("Converted {} documents", converted);
+                }
+            } catch (IOException e) {
+                failed++;
+                logger.error("Failed to convert {}: {}", file, e.getMessage());
+            }
+        }
+
+        logger.info("Converted {} documents ({} failed) in {} s: {} MB XMI -> {} MB binary",
+                converted, failed, (System.currentTimeMillis() - startTime) / 1000,
+                xmiBytes / (1024 * 1024), binaryBytes / (1024 * 1024));
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Usage: CasStoreConverter <xmiDirectory> <binaryDirectory> [typeSystem.xml]");
+            return;
+        }
+        String typeSystemPath = args.length > 2 ? args[2] : DEFAULT_TYPE_SYSTEM_PATH;
+
+        try {
+            TypeSystemDescription fileTypeSystem = UIMAFramework.getXMLParser()
+                    .parseTypeSystemDescription(new XMLInputSource(new File(typeSystemPath)));
+            // The stored documents use the DKPro and textimager types found on the classpath
+            TypeSystemDescription typeSystemDescription = CasCreationUtils.mergeTypeSystems(Arrays.asList(
+                    fileTypeSystem, TypeSystemDescriptionFactory.createTypeSystemDescription()));
+            convert(Paths.get(args[0]), Paths.get(args[1]), typeSystemDescription);
+        } catch (Exception e) {
+            logger.error("Conversion failed", e);
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.myfirstJavalin.nlp;
+
+import de.tudarmstadt.ukp.dkpro.core.api.metadata.type.DocumentMetaData;
+import org.apache.uima.cas.FSIterator;
+import org.apache.uima.cas.FeatureStructure;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.cas.TOP;
+import org.apache.uima.jcas.tcas.Annotation;
+import org.apache.uima.jcas.tcas.DocumentAnnotation;
+import org.apache.uima.util.CasCopier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Annotates long documents in windows. The text is split at paragraph and sentence
+ * boundaries, every window is annotated in its own pooled CAS in parallel, and the
+ * annotations are copied back into the document CAS with their offsets shifted by
+ * the window start. Requests to the remote components stay small, so long speeches
+ * no longer run into the remote driver timeout.
+ */
+public class ChunkedAnnotator {
+    private static final Logger logger = LoggerFactory.getLogger(ChunkedAnnotator.class);
+
+    /**
+     * Annotates a single window CAS.
+     */
+    @FunctionalInterface
+    public interface WindowAnnotator {
+        /**
+         * @param windowId id of the window, used in log messages
+         * @param jCas the window CAS
+         * @return true if the window was annotated
+         * @throws ComponentUnavailableException if a component is down
+         */
+        boolean annotate(String windowId, JCas jCas) throws ComponentUnavailableException;
+    }
+
+    private final JCasPool casPool;
+    private final WindowAnnotator annotator;
+    private final int maxChars;
+    private final ExecutorService executor;
+
+    /**
+     * @param casPool pool the window CASes are taken from
+     * @param annotator runs the components on one window
+     * @param maxChars maximum window length; shorter documents are not split
+     * @param parallelism number of windows annotated at the same time, over all documents
+     */
+    public ChunkedAnnotator(JCasPool casPool, WindowAnnotator annotator, int maxChars, int parallelism) {
+        this.casPool = casPool;
+        this.annotator = annotator;
+        this.maxChars = maxChars;
+        AtomicInteger threadNumber = new AtomicInteger(0);
+        this.executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "nlp-window-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @param jCas a document CAS
+     * @return true if the document is long enough to be split
+     */
+    public boolean shouldSplit(JCas jCas) {
+        return jCas.getDocumentText().length() > maxChars;
+    }
+
+    /**
+     * Annotates a document window by window and merges the results into its CAS.
+     *
+     * @param docId Document ID
+     * @param jCas the document CAS holding text and metadata
+     * @return true if every window was annotated
+     * @throws ComponentUnavailableException if a component is down
+     * @throws InterruptedException if interrupted while waiting for the windows
+     */
+    public boolean annotate(String docId, JCas jCas) throws ComponentUnavailableException, InterruptedException {
+        String text = jCas.getDocumentText();
+        String language = jCas.getDocumentLanguage();
+        List<TextWindowSplitter.Window> windows = new TextWindowSplitter(maxChars, Locale.forLanguageTag(language)).split(text);
+        logger.info("Annotating document {} ({} chars) in {} windows", docId, text.length(), windows.size());
+
+        // Set once a window failed, so windows that have not started yet are skipped
+        AtomicBoolean aborted = new AtomicBoolean(false);
+        List<Future<JCas>> futures = new ArrayList<>();
+        for (int i = 0; i < windows.size(); i++) {
+            String windowId = docId + "#" + i;
+            String windowText = text.substring(windows.get(i).getBegin(), windows.get(i).getEnd());
+            futures.add(executor.submit(() -> annotateWindow(windowId, windowText, language, aborted)));
+        }
+
+        // Merge in text order on this thread; a CasCopier is not thread-safe.
+        // Every future is awaited so all window CASes go back to the pool.
+        boolean success = true;
+        ComponentUnavailableException unavailable = null;
+        InterruptedException interrupted = null;
+        for (int i = 0; i < futures.size(); i++) {
+            JCas windowCas = null;
+            try {
+                windowCas = futures.get(i).get();
+                if (windowCas == null) {
+                    success = false;
+                } else if (success && unavailable == null && interrupted == null) {
+                    merge(windowCas, jCas, windows.get(i).getBegin());
+                }
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof ComponentUnavailableException) {
+                    unavailable = (ComponentUnavailableException) e.getCause();
+                } else {
+                    logger.error("Window {}#{} failed: {}", docId, i, e.getCause().getMessage());
+                    success = false;
+                }
+            } catch (InterruptedException e) {
+                interrupted = e;
+                i--;
+            } finally {
+                casPool.release(windowCas);
+            }
+
+            // Remaining windows are useless once one has failed
+            if (!success || unavailable != null || interrupted != null) {
+                aborted.set(true);
+            }
+        }
+
+        if (interrupted != null) {
+            Thread.currentThread().interrupt();
+            throw interrupted;
+        }
+
+        if (unavailable != null) {
+            throw unavailable;
+        }
+        return success;
+    }
+
+    /**
+     * Annotates one window in a pooled CAS.
+     *
+     * @return the annotated window CAS, or null if annotation failed
+     */
+    private JCas annotateWindow(String windowId, String windowText, String language, AtomicBoolean aborted) throws Exception {
+        if (aborted.get()) {
+            return null;
+        }
+
+        JCas windowCas = casPool.acquire();
+        boolean annotated = false;
+        try {
+            windowCas.setDocumentText(windowText);
+            windowCas.setDocumentLanguage(language);
+
+            DocumentMetaData metadata = new DocumentMetaData(windowCas);
+            metadata.setDocumentId(windowId);
+            metadata.setLanguage(language);
+            metadata.addToIndexes();
+
+            annotated = annotator.annotate(windowId, windowCas);
+            return annotated ? windowCas : null;
+        } finally {
+            if (!annotated) {
+                casPool.release(windowCas);
+            }
+        }
+    }
+
+    /**
+     * Copies all annotations of a window into the document CAS, shifting their offsets
+     * by the window start. Document-level annotations of the window are skipped.
+     *
+     * @param windowCas the annotated window
+     * @param target the document CAS
+     * @param offset start of the window in the document text
+     */
+    private static void merge(JCas windowCas, JCas target, int offset) {
+        CasCopier copier = new CasCopier(windowCas.getCas(), target.getCas());
+        Set<FeatureStructure> shifted = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        FSIterator<TOP> iterator = windowCas.getIndexRepository().getAllIndexedFS(windowCas.getCasType(TOP.type));
+        while (iterator.hasNext()) {
+            TOP fs = iterator.next();
+            if (fs instanceof DocumentAnnotation) {
+                continue;
+            }
+
+            // Referenced annotations, e.g. the tokens of a dependency, are copied along with
+            // the referencing one; the copier returns the same copy for them later
+            FeatureStructure copy = copier.copyFs(fs);
+            if (shifted.add(copy)) {
+                if (copy instanceof Annotation) {
+                    Annotation annotation = (Annotation) copy;
+                    annotation.setBegin(annotation.getBegin() + offset);
+                    annotation.setEnd(annotation.getEnd() + offset);
+                }
+                target.addFsToIndexes(copy);
+            }
+        }
+    }
+
+    /**
+     * Stops the window threads.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,151 @@
+package com.myfirstJavalin.nlp;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Circuit breaker guarding a single remote component.
+ * After a number of consecutive failures the breaker opens and calls fail fast without
+ * touching the network. Once the open period has passed, one probe call is let through
+ * (half-open): a success closes the breaker, a failure opens it again for twice as long,
+ * up to a maximum, so a component that stays down is probed less and less often.
+ */
+public class CircuitBreaker {
+    private static final Logger logger = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long baseOpenMillis;
+    private final long maxOpenMillis;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openMillis;
+    private long openUntil;
+    private boolean probeInFlight;
+    private long totalFailures;
+    private long rejectedCalls;
+
+    /**
+     * Creates a closed breaker.
+     *
+     * @param name name of the guarded component, used in log messages
+     * @param failureThreshold consecutive failures that open the breaker
+     * @param baseOpenMillis how long the breaker stays open the first time
+     * @param maxOpenMillis upper bound of the open period after repeated failed probes
+     */
+    public CircuitBreaker(String name, int failureThreshold, long baseOpenMillis, long maxOpenMillis) {
+        if (failureThreshold < 1) {
+            throw new IllegalArgumentException("Failure threshold must be at least 1: " + failureThreshold);
+        }
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.baseOpenMillis = baseOpenMillis;
+        this.maxOpenMillis = Math.max(baseOpenMillis, maxOpenMillis);
+        this.openMillis = baseOpenMillis;
+    }
+
+    /**
+     * Decides whether a call may go to the component. In the half-open state only
+     * a single probe is allowed at a time.
+     *
+     * @return true if the caller may call the component
+     */
+    public synchronized boolean allowRequest() {
+        if (state == State.OPEN && System.currentTimeMillis() >= openUntil) {
+            state = State.HALF_OPEN;
+            probeInFlight = false;
+            logger.info("Circuit breaker of {} is half-open, probing the component", name);
+        }
+
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.HALF_OPEN && !probeInFlight) {
+            probeInFlight = true;
+            return true;
+        }
+        rejectedCalls++;
+        return false;
+    }
+
+    /**
+     * Records a successful call and closes the breaker.
+     */
+    public synchronized void recordSuccess() {
+        if (state != State.CLOSED) {
+            logger.info("Circuit breaker of {} closed, component is available again", name);
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        openMillis = baseOpenMillis;
+        probeInFlight = false;
+    }
+
+    /**
+     * Records a failed call, opening the breaker when the threshold is reached
+     * or when a half-open probe failed.
+     */
+    public synchronized void recordFailure() {
+        totalFailures++;
+        consecutiveFailures++;
+
+        if (state == State.HALF_OPEN) {
+            openMillis = Math.min(openMillis * 2, maxOpenMillis);
+            open();
+        } else if (state == State.CLOSED && consecutiveFailures >= failureThreshold) {
+            open();
+        }
+    }
+
+    /**
+     * Ends a call that neither succeeded nor failed, e.g. one that was interrupted.
+     * If it was the half-open probe, the next call may probe again.
+     */
+    public synchronized void abortProbe() {
+        probeInFlight = false;
+    }
+
+    /**
+     * Opens the breaker immediately, e.g. when a component cannot be initialized.
+     */
+    public synchronized void trip() {
+        open();
+    }
+
+    private void open() {
+        state = State.OPEN;
+        probeInFlight = false;
+        openUntil = System.currentTimeMillis() + openMillis;
+        logger.warn("Circuit breaker of {} opened after {} consecutive failures, next probe in {} ms",
+                name, consecutiveFailures, openMillis);
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * @return true if calls are currently rejected without a probe being possible
+     */
+    public synchronized boolean isOpen() {
+        return state == State.OPEN && System.currentTimeMillis() < openUntil;
+    }
+
+    /**
+     * @return time at which the breaker lets the next probe through, or 0 if it is not open
+     */
+    public synchronized long getOpenUntil() {
+        return state == State.OPEN ? openUntil : 0;
+    }
+
+    public synchronized long getTotalFailures() {
+        return totalFailures;
+    }
+
+    public synchronized long getRejectedCalls() {
+        return rejectedCalls;
+    }
+}
@@ -0,0 +1,29 @@
+package com.myfirstJavalin.nlp;
+
+/**
+ * Thrown when a remote component cannot be used right now because its circuit breaker is open.
+ * The document itself is fine and should be parked and retried later.
+ */
+public class ComponentUnavailableException extends Exception {
+    private final String component;
+    private final long retryAt;
+
+    /**
+     * @param component name of the unavailable component
+     * @param retryAt earliest time at which the component may be tried again
+     * @param cause the last failure, may be null
+     */
+    public ComponentUnavailableException(String component, long retryAt, Throwable cause) {
+        super("Component " + component + " is unavailable", cause);
+        this.component = component;
+        this.retryAt = retryAt;
+    }
+
+    public String getComponent() {
+        return component;
+    }
+
+    public long getRetryAt() {
+        return retryAt;
+    }
+}
@@ -0,0 +1,146 @@
+package com.myfirstJavalin.nlp;
+
+import com.myfirstJavalin.database.DeadLetterQueue;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Feeds dead-lettered speeches that are due for a retry into a running pipeline.
+ * Retries run at low priority: they are only offered while the first pipeline queue has
+ * spare room, so regular speeches are never held back by them.
+ */
+public class DeadLetterRetryScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(DeadLetterRetryScheduler.class);
+
+    /**
+     * Access to the speeches that are retried.
+     */
+    public interface SpeechSource {
+        /**
+         * @param speechId the speech id
+         * @return the speech, loaded (and, with leases, claimed), or null if it cannot be retried now
+         */
+        Document load(String speechId);
+
+        /**
+         * @param speechId the speech id
+         * @return true if the speech has been annotated in the meantime
+         */
+        boolean isProcessed(String speechId);
+
+        /**
+         * Hands back a loaded speech that was not retried after all, e.g. releases its lease.
+         *
+         * @param speechId the speech id
+         */
+        void release(String speechId);
+    }
+
+    private final DeadLetterQueue deadLetterQueue;
+    private final SpeechSource speechSource;
+    private final long pollMillis;
+    private final long claimTimeoutMillis;
+    private final int reservedSlots;
+    private final AtomicInteger retried = new AtomicInteger(0);
+    private ScheduledExecutorService executor;
+    private StagedPipeline<SpeechWorkItem> pipeline;
+
+    /**
+     * @param deadLetterQueue the dead-letter queue
+     * @param speechSource loads, checks and hands back the retried speeches
+     * @param pollMillis interval between two looks at the queue
+     * @param claimTimeoutMillis time after which a retry that never reported back is due again
+     * @param reservedSlots slots of the first pipeline queue that are kept free for regular speeches
+     */
+    public DeadLetterRetryScheduler(DeadLetterQueue deadLetterQueue, SpeechSource speechSource,
+                                    long pollMillis, long claimTimeoutMillis, int reservedSlots) {
+        this.deadLetterQueue = deadLetterQueue;
+        this.speechSource = speechSource;
+        this.pollMillis = pollMillis;
+        this.claimTimeoutMillis = claimTimeoutMillis;
+        this.reservedSlots = reservedSlots;
+    }
+
+    /**
+     * Starts polling the queue for a running pipeline.
+     *
+     * @param pipeline the started pipeline
+     */
+    public void start(StagedPipeline<SpeechWorkItem> pipeline) {
+        this.pipeline = pipeline;
+        retried.set(0);
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "dead-letter-retry");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::poll, 0, pollMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops polling. Retries that are due by now are offered once more, so a run
+     * without regular work still picks them up; must be called before the pipeline finishes.
+     */
+    public void stop() {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        executor = null;
+        poll();
+        pipeline = null;
+        logger.info("Retried {} dead-lettered speeches, {} still pending", retried.get(), deadLetterQueue.countPending());
+    }
+
+    /**
+     * @return number of speeches handed to the pipeline since the last start
+     */
+    public int getRetried() {
+        return retried.get();
+    }
+
+    private void poll() {
+        try {
+            while (true) {
+                List<String> due = deadLetterQueue.claimDue(1, claimTimeoutMillis);
+                if (due.isEmpty()) {
+                    return;
+                }
+                String speechId = due.get(0);
+
+                Document speechDoc = speechSource.load(speechId);
+                if (speechDoc == null) {
+                    if (speechSource.isProcessed(speechId)) {
+                        // Annotated in the meantime, e.g. by another node
+                        deadLetterQueue.resolve(Set.of(speechId));
+                    }
+                    // Otherwise leased by another node; the claim timeout brings it back
+                    continue;
+                }
+                if (!pipeline.offer(new SpeechWorkItem(speechDoc), reservedSlots)) {
+                    speechSource.release(speechId);
+                    deadLetterQueue.release(speechId);
+                    return;
+                }
+                retried.incrementAndGet();
+                logger.info("Retrying dead-lettered speech {}", speechId);
+            }
+        } catch (Exception e) {
+            logger.error("Dead-letter retry poll failed: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,342 @@
+package com.myfirstJavalin.nlp;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import de.tudarmstadt.ukp.dkpro.core.api.lexmorph.type.pos.POS;
+import de.tudarmstadt.ukp.dkpro.core.api.ner.type.NamedEntity;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Lemma;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Sentence;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
+import de.tudarmstadt.ukp.dkpro.core.api.syntax.type.dependency.Dependency;
+import org.apache.uima.cas.impl.XmiCasDeserializer;
+import org.apache.uima.cas.impl.XmiCasSerializer;
+import org.apache.uima.fit.factory.TypeSystemDescriptionFactory;
+import org.apache.uima.fit.util.JCasUtil;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.resource.metadata.TypeSystemDescription;
+import org.apache.uima.util.CasCreationUtils;
+import org.hucompute.textimager.uima.type.Sentiment;
+import org.hucompute.textimager.uima.type.category.CategoryCoveredTagged;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Local stand-in for a remote DUUI component, speaking the DUUI remote protocol
+ * (communication layer, type system and process endpoints) on the JDK HTTP server.
+ * CASes travel as XMI; the annotations are derived from the text only, so the same
+ * speech always gets the same tokens, sentiments and topics. Latency and errors can
+ * be injected to benchmark the pipeline and its retry handling without the real components.
+ */
+public class FakeDuuiComponent {
+    private static final Logger logger = LoggerFactory.getLogger(FakeDuuiComponent.class);
+
+    private static final String COMMUNICATION_LAYER = String.join("\n",
+            "XmiCasSerializer = luajava.bindClass(\"org.apache.uima.cas.impl.XmiCasSerializer\")",
+            "XmiCasDeserializer = luajava.bindClass(\"org.apache.uima.cas.impl.XmiCasDeserializer\")",
+            "",
+            "function serialize(inputCas, outputStream, parameters)",
+            "    XmiCasSerializer:serialize(inputCas:getCas(), outputStream)",
+            "end",
+            "",
+            "function deserialize(inputCas, inputStream)",
+            "    inputCas:reset()",
+            "    XmiCasDeserializer:deserialize(inputStream, inputCas:getCas(), true)",
+            "end");
+
+    private static final Pattern SENTENCE = Pattern.compile("[^.!?]+[.!?]*");
+    private static final Pattern TOKEN = Pattern.compile("\\p{L}[\\p{L}\\p{N}-]*|\\p{N}+|[^\\s\\p{L}\\p{N}]");
+    private static final String[] ENTITY_TYPES = {"PER", "LOC", "ORG", "MISC"};
+    private static final String[] TOPICS = {"Economy", "Health", "Education", "Environment", "Defense",
+            "Social Policy", "Foreign Affairs", "Justice", "Transport", "Culture"};
+
+    /**
+     * Which real component is imitated.
+     */
+    public enum Kind {
+        /** sentences, tokens with lemma and POS, dependencies and named entities */
+        SPACY,
+        /** one sentiment per sentence */
+        GERVADER,
+        /** two scored topic candidates per sentence */
+        PARLBERT
+    }
+
+    private final Kind kind;
+    private final int port;
+    private final long latencyMillis;
+    private final long latencyPerKiloCharMillis;
+    private final double errorRate;
+    private final Random errorRandom;
+    private final TypeSystemDescription typeSystem;
+    private final ThreadLocal<JCas> casPerThread;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong injectedErrors = new AtomicLong();
+    private HttpServer server;
+    private ExecutorService executor;
+
+    /**
+     * @param kind imitated component
+     * @param port port to listen on, 0 for any free port
+     * @param latencyMillis fixed delay added to every process call
+     * @param latencyPerKiloCharMillis delay added per 1000 characters of text
+     * @param errorRate share of process calls answered with HTTP 500
+     * @param seed seed of the error injection, so failing calls are reproducible
+     * @throws Exception if the type system cannot be created
+     */
+    public FakeDuuiComponent(Kind kind, int port, long latencyMillis, long latencyPerKiloCharMillis,
+                             double errorRate, long seed) throws Exception {
+        this.kind = kind;
+        this.port = port;
+        this.latencyMillis = latencyMillis;
+        this.latencyPerKiloCharMillis = latencyPerKiloCharMillis;
+        this.errorRate = errorRate;
+        this.errorRandom = new Random(seed);
+        this.typeSystem = TypeSystemDescriptionFactory.createTypeSystemDescription();
+        this.casPerThread = ThreadLocal.withInitial(() -> {
+            try {
+                return CasCreationUtils.createCas(typeSystem, null, null).getJCas();
+            } catch (Exception e) {
+                throw new IllegalStateException("Cannot create CAS", e);
+            }
+        });
+    }
+
+    /**
+     * Starts serving requests.
+     *
+     * @param threads number of requests served in parallel
+     * @throws IOException if the port cannot be bound
+     */
+    public void start(int threads) throws IOException {
+        StringWriter typeSystemXml = new StringWriter();
+        try {
+            typeSystem.toXML(typeSystemXml);
+        } catch (Exception e) {
+            throw new IOException("Cannot serialize the type system", e);
+        }
+        byte[] typeSystemBytes = typeSystemXml.toString().getBytes(StandardCharsets.UTF_8);
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        server.createContext("/v1/communication_layer",
+                exchange -> respond(exchange, 200, COMMUNICATION_LAYER.getBytes(StandardCharsets.UTF_8)));
+        server.createContext("/v1/typesystem", exchange -> respond(exchange, 200, typeSystemBytes));
+        server.createContext("/v1/details/input_output",
+                exchange -> respond(exchange, 200, "{\"inputs\":[],\"outputs\":[]}".getBytes(StandardCharsets.UTF_8)));
+        server.createContext("/v1/documentation", exchange -> respond(exchange, 200,
+                ("{\"annotator_name\":\"fake-" + kind.name().toLowerCase() + "\",\"version\":\"1.0\"}")
+                        .getBytes(StandardCharsets.UTF_8)));
+        server.createContext("/v1/process", this::process);
+
+        executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "fake-duui-" + kind.name().toLowerCase());
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.start();
+        logger.info("Fake {} component listening on {}", kind, getUrl());
+    }
+
+    /**
+     * @return base URL of the component, to be used as the component URL of the processor
+     */
+    public String getUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getInjectedErrors() {
+        return injectedErrors.get();
+    }
+
+    /**
+     * Stops the server.
+     */
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+            logger.info("Fake {} component served {} requests, {} injected errors", kind, requests.get(), injectedErrors.get());
+        }
+    }
+
+    private void process(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        try (InputStream body = exchange.getRequestBody()) {
+            JCas jCas = casPerThread.get();
+            jCas.reset();
+            XmiCasDeserializer.deserialize(body, jCas.getCas(), true);
+
+            String text = jCas.getDocumentText() != null ? jCas.getDocumentText() : "";
+            sleep(latencyMillis + latencyPerKiloCharMillis * text.length() / 1000);
+            if (injectError()) {
+                injectedErrors.incrementAndGet();
+                respond(exchange, 500, "Injected error".getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+
+            annotate(kind, jCas);
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream(text.length() * 4 + 4096);
+            XmiCasSerializer.serialize(jCas.getCas(), out);
+            respond(exchange, 200, out.toByteArray());
+        } catch (Exception e) {
+            logger.error("Fake {} component failed: {}", kind, e.getMessage());
+            respond(exchange, 500, String.valueOf(e.getMessage()).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private boolean injectError() {
+        if (errorRate <= 0) {
+            return false;
+        }
+        synchronized (errorRandom) {
+            return errorRandom.nextDouble() < errorRate;
+        }
+    }
+
+    /**
+     * Adds the annotations the given component would add. Also used to build annotated CASes for benchmarks.
+     *
+     * @param kind imitated component
+     * @param jCas CAS holding the text and the annotations of the components before
+     */
+    static void annotate(Kind kind, JCas jCas) {
+        switch (kind) {
+            case SPACY:
+                annotateSyntax(jCas, jCas.getDocumentText() != null ? jCas.getDocumentText() : "");
+                break;
+            case GERVADER:
+                annotateSentiment(jCas);
+                break;
+            case PARLBERT:
+                annotateTopics(jCas);
+                break;
+        }
+    }
+
+    private static void annotateSyntax(JCas jCas, String text) {
+        Matcher sentenceMatcher = SENTENCE.matcher(text);
+        while (sentenceMatcher.find()) {
+            int begin = sentenceMatcher.start();
+            int end = sentenceMatcher.end();
+            while (begin < end && Character.isWhitespace(text.charAt(begin))) {
+                begin++;
+            }
+            while (end > begin && Character.isWhitespace(text.charAt(end - 1))) {
+                end--;
+            }
+            if (begin == end) {
+                continue;
+            }
+            new Sentence(jCas, begin, end).addToIndexes();
+
+            List<Token> tokens = new ArrayList<>();
+            Matcher tokenMatcher = TOKEN.matcher(text).region(begin, end);
+            while (tokenMatcher.find()) {
+                tokens.add(token(jCas, tokenMatcher.group(), tokenMatcher.start(), tokenMatcher.end()));
+            }
+            if (tokens.isEmpty()) {
+                continue;
+            }
+
+            // Flat tree: the first token is the root and governs all others
+            Token root = tokens.get(0);
+            for (Token token : tokens) {
+                Dependency dependency = new Dependency(jCas, token.getBegin(), token.getEnd());
+                dependency.setGovernor(root);
+                dependency.setDependent(token);
+                dependency.setDependencyType(token == root ? "ROOT" : token.getPosValue().equals("PUNCT") ? "punct" : "dep");
+                dependency.addToIndexes();
+            }
+
+            // Capitalized words inside a sentence stand in for named entities
+            for (int i = 1; i < tokens.size(); i++) {
+                Token token = tokens.get(i);
+                String word = token.getCoveredText();
+                if (word.length() > 3 && Character.isUpperCase(word.charAt(0)) && stableHash(word) % 5 == 0) {
+                    NamedEntity entity = new NamedEntity(jCas, token.getBegin(), token.getEnd());
+                    entity.setValue(ENTITY_TYPES[stableHash(word) % ENTITY_TYPES.length]);
+                    entity.addToIndexes();
+                }
+            }
+        }
+    }
+
+    private static Token token(JCas jCas, String word, int begin, int end) {
+        Token token = new Token(jCas, begin, end);
+
+        Lemma lemma = new Lemma(jCas, begin, end);
+        lemma.setValue(word.toLowerCase());
+        lemma.addToIndexes();
+        token.setLemma(lemma);
+
+        POS pos = new POS(jCas, begin, end);
+        if (Character.isLetter(word.charAt(0))) {
+            pos.setPosValue(Character.isUpperCase(word.charAt(0)) ? "NOUN" : "VERB");
+        } else {
+            pos.setPosValue(Character.isDigit(word.charAt(0)) ? "NUM" : "PUNCT");
+        }
+        pos.addToIndexes();
+        token.setPos(pos);
+
+        token.addToIndexes();
+        return token;
+    }
+
+    private static void annotateSentiment(JCas jCas) {
+        for (Sentence sentence : new ArrayList<>(JCasUtil.select(jCas, Sentence.class))) {
+            Sentiment sentiment = new Sentiment(jCas, sentence.getBegin(), sentence.getEnd());
+            sentiment.setSentiment(stableHash(sentence.getCoveredText()) % 2001 / 1000.0 - 1.0);
+            sentiment.addToIndexes();
+        }
+    }
+
+    private static void annotateTopics(JCas jCas) {
+        for (Sentence sentence : new ArrayList<>(JCasUtil.select(jCas, Sentence.class))) {
+            int hash = stableHash(sentence.getCoveredText());
+            for (int candidate = 0; candidate < 2; candidate++) {
+                CategoryCoveredTagged topic = new CategoryCoveredTagged(jCas, sentence.getBegin(), sentence.getEnd());
+                topic.setValue(TOPICS[(hash + candidate * 7) % TOPICS.length]);
+                topic.setScore(candidate == 0 ? 0.5 + hash % 500 / 1000.0 : 0.1 + hash % 400 / 1000.0);
+                topic.addToIndexes();
+            }
+        }
+    }
+
+    private static int stableHash(String value) {
+        return value.hashCode() & 0x7FFFFFFF;
+    }
+
+    private static void sleep(long millis) throws InterruptedException {
+        if (millis > 0) {
+            Thread.sleep(millis);
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.myfirstJavalin.nlp;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.TypeSystem;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.apache.uima.resource.metadata.TypeSystemDescription;
+import org.apache.uima.util.CasCreationUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded pool of JCas objects built once from the loaded type system.
+ * Workers borrow a reset CAS instead of creating one per document, which avoids
+ * repeated type system commits and large heap allocations in long runs.
+ * CASes are created lazily up to the maximum size; after that, borrowers wait.
+ */
+public class JCasPool {
+    private static final Logger logger = LoggerFactory.getLogger(JCasPool.class);
+
+    private final TypeSystemDescription typeSystemDescription;
+    private final int maxSize;
+    private final BlockingQueue<JCas> idle = new LinkedBlockingQueue<>();
+    private final AtomicInteger created = new AtomicInteger(0);
+    private final AtomicLong hits = new AtomicLong(0);
+    private final AtomicLong waits = new AtomicLong(0);
+    private final AtomicLong waitNanos = new AtomicLong(0);
+    private volatile TypeSystem typeSystem;
+
+    /**
+     * Creates an empty pool.
+     *
+     * @param typeSystemDescription type system of every pooled CAS
+     * @param maxSize maximum number of CAS objects ever created
+     */
+    public JCasPool(TypeSystemDescription typeSystemDescription, int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Pool size must be at least 1: " + maxSize);
+        }
+        this.typeSystemDescription = typeSystemDescription;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Borrows an empty JCas, creating one if the pool has not reached its maximum
+     * size yet and waiting for a returned one otherwise.
+     *
+     * @return a reset JCas owned by the caller until {@link #release(JCas)}
+     * @throws ResourceInitializationException if a new CAS cannot be created
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public JCas acquire() throws ResourceInitializationException, InterruptedException {
+        JCas jCas = idle.poll();
+        if (jCas != null) {
+            hits.incrementAndGet();
+            return jCas;
+        }
+
+        if (created.incrementAndGet() <= maxSize) {
+            return createJCas();
+        }
+        created.decrementAndGet();
+
+        long start = System.nanoTime();
+        waits.incrementAndGet();
+        jCas = idle.take();
+        waitNanos.addAndGet(System.nanoTime() - start);
+        return jCas;
+    }
+
+    /**
+     * Resets a JCas and returns it to the pool.
+     *
+     * @param jCas a JCas obtained from {@link #acquire()}
+     */
+    public void release(JCas jCas) {
+        if (jCas == null) {
+            return;
+        }
+        jCas.reset();
+        idle.offer(jCas);
+    }
+
+    private JCas createJCas() throws ResourceInitializationException {
+        try {
+            CAS cas;
+            // All CASes share the type system committed for the first one
+            synchronized (this) {
+                if (typeSystem == null) {
+                    cas = CasCreationUtils.createCas(typeSystemDescription, null, null, null);
+                    typeSystem = cas.getTypeSystem();
+                } else {
+                    cas = CasCreationUtils.createCas(Collections.singletonList(typeSystemDescription), typeSystem, null);
+                }
+            }
+            return cas.getJCas();
+        } catch (ResourceInitializationException e) {
+            created.decrementAndGet();
+            throw e;
+        } catch (Exception e) {
+            created.decrementAndGet();
+            throw new ResourceInitializationException(e);
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getCreated() {
+        return created.get();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getWaits() {
+        return waits.get();
+    }
+
+    public long getWaitMillis() {
+        return waitNanos.get() / 1_000_000;
+    }
+
+    public int getIdle() {
+        return idle.size();
+    }
+
+    /**
+     * Logs the pool metrics.
+     */
+    public void logStats() {
+        logger.info("CAS pool: {} created (max {}), {} idle, {} hits, {} waits ({} ms waiting)",
+                getCreated(), maxSize, getIdle(), getHits(), getWaits(), getWaitMillis());
+    }
+}
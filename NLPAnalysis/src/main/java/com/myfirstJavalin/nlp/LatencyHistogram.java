@@ -0,0 +1,103 @@
+package com.myfirstJavalin.nlp;
+
+import org.bson.Document;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with logarithmic buckets.
+ * Each power of two is split into four buckets, so a percentile is reported with
+ * at most about 19% error while recording stays a single atomic increment.
+ * Covers 1 microsecond up to several hours.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKETS = 4;
+    private static final int BUCKETS = 40 * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong(0);
+    private final AtomicLong totalMicros = new AtomicLong(0);
+    private final AtomicLong maxMicros = new AtomicLong(0);
+
+    /**
+     * Records one measurement.
+     *
+     * @param nanos duration in nanoseconds
+     */
+    public void record(long nanos) {
+        long micros = Math.max(1, nanos / 1000);
+        buckets.incrementAndGet(bucketOf(micros));
+        count.incrementAndGet();
+        totalMicros.addAndGet(micros);
+        maxMicros.accumulateAndGet(micros, Math::max);
+    }
+
+    private static int bucketOf(long micros) {
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        // The two bits after the leading one select the sub-bucket
+        int sub = exponent >= 2 ? (int) ((micros >>> (exponent - 2)) & (SUB_BUCKETS - 1)) : 0;
+        return Math.min(exponent * SUB_BUCKETS + sub, BUCKETS - 1);
+    }
+
+    private static long upperBoundOf(int bucket) {
+        int exponent = bucket / SUB_BUCKETS;
+        int sub = bucket % SUB_BUCKETS;
+        if (exponent < 2) {
+            return (1L << (exponent + 1)) - 1;
+        }
+        return (1L << exponent) + ((long) (sub + 1) << (exponent - 2)) - 1;
+    }
+
+    /**
+     * Estimates a percentile.
+     *
+     * @param percentile percentile between 0 and 100
+     * @return upper bound of the bucket holding the percentile, in microseconds, or 0 if empty
+     */
+    public long percentileMicros(double percentile) {
+        long total = count.get();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(i), maxMicros.get());
+            }
+        }
+        return maxMicros.get();
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getTotalMicros() {
+        return totalMicros.get();
+    }
+
+    public long getMaxMicros() {
+        return maxMicros.get();
+    }
+
+    public double getMeanMicros() {
+        long total = count.get();
+        return total == 0 ? 0 : (double) totalMicros.get() / total;
+    }
+
+    /**
+     * @return the histogram summary in milliseconds, ready for JSON export
+     */
+    public Document toDocument() {
+        return new Document("count", getCount())
+                .append("totalMs", getTotalMicros() / 1000.0)
+                .append("meanMs", getMeanMicros() / 1000.0)
+                .append("p50Ms", percentileMicros(50) / 1000.0)
+                .append("p95Ms", percentileMicros(95) / 1000.0)
+                .append("p99Ms", percentileMicros(99) / 1000.0)
+                .append("maxMs", getMaxMicros() / 1000.0);
+    }
+}
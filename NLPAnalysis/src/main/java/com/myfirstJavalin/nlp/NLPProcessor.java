@@ -1,25 +1,27 @@
 package com.myfirstJavalin.nlp;
 
-import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
 import com.mongodb.bulk.BulkWriteResult;
 import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Sorts;
 import com.mongodb.client.model.UpdateOneModel;
 import com.mongodb.client.model.WriteModel;
 import com.myfirstJavalin.config.AppConfig;
+import com.myfirstJavalin.data.AnnotationCodec;
+import com.myfirstJavalin.database.AnnotationCache;
+import com.myfirstJavalin.database.AnnotationStore;
+import com.myfirstJavalin.database.ComponentHealthCache;
+import com.myfirstJavalin.database.DeadLetterQueue;
 import com.myfirstJavalin.database.MongoDBHandler;
+import com.myfirstJavalin.database.ScanCheckpoint;
+import com.myfirstJavalin.database.SpeechLeaseManager;
 import de.tudarmstadt.ukp.dkpro.core.api.metadata.type.DocumentMetaData;
-import de.tudarmstadt.ukp.dkpro.core.api.ner.type.NamedEntity;
-import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Sentence;
-import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
-import de.tudarmstadt.ukp.dkpro.core.api.syntax.type.dependency.Dependency;
 
 import org.apache.uima.UIMAFramework;
-import org.apache.uima.cas.CAS;
 import org.apache.uima.cas.CASException;
-import org.apache.uima.cas.impl.XmiCasDeserializer;
-import org.apache.uima.cas.impl.XmiCasSerializer;
 import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.fit.factory.TypeSystemDescriptionFactory;
 import org.apache.uima.fit.util.JCasUtil;
 import org.apache.uima.jcas.JCas;
 import org.apache.uima.resource.ResourceInitializationException;
@@ -28,21 +30,19 @@ import org.apache.uima.util.CasCreationUtils;
 import org.apache.uima.util.XMLInputSource;
 import org.bson.Document;
 import org.hucompute.textimager.uima.type.Sentiment;
-import org.hucompute.textimager.uima.type.category.CategoryCoveredTagged;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.texttechnologylab.DockerUnifiedUIMAInterface.DUUIComposer;
-import org.texttechnologylab.DockerUnifiedUIMAInterface.driver.DUUIDockerDriver;
-import org.texttechnologylab.DockerUnifiedUIMAInterface.driver.DUUIRemoteDriver;
-import org.texttechnologylab.DockerUnifiedUIMAInterface.driver.DUUIUIMADriver;
-import org.texttechnologylab.DockerUnifiedUIMAInterface.lua.DUUILuaContext;
 
 import java.io.*;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.net.InetAddress;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -52,22 +52,57 @@ import java.util.concurrent.atomic.AtomicInteger;
  * Optimized for processing large volumes of documents efficiently.
  */
 public class NLPProcessor {
-    private static final String XML_DIRECTORY = "src/main/resources/processedXmi"; // the path pre-processed XMI files
+    private static final String XML_DIRECTORY = "src/main/resources/processedXmi"; // default path of the stored CAS files
     private static final Logger logger = LoggerFactory.getLogger(NLPProcessor.class);
     private static final String xmlFilePath = "src/main/resources/newProcessedXmi"; // the path to save newly created XMI files
 
     // Configurable NLP Processing Parameters
-    private static final int WORKERS_COUNT = 1;
+    private static final int DEFAULT_WORKERS_COUNT = 1;
     private static final int BATCH_SIZE = 50;
     private static final int SAVE_BATCH_SIZE = 20;
     private static final int MAX_RETRIES = 3;
     private static final String TYPE_SYSTEM_PATH = "src/main/resources/TypeSystem.xml";// pre-prepared TypeSystem
 
-    private DUUIComposer composer;
-    private final Map<String, JCas> listToJCas = new HashMap<>();
-    private TypeSystemDescription typeSystemDescription;
+    // Default remote DUUI components, overridable with nlp.component.<name>.url
+    private static final String SPACY_URL = "http://spacy.lehre.texttechnologylab.org";
+    private static final String GERVADER_URL = "http://gervader.lehre.texttechnologylab.org";
+    private static final String PARLBERT_URL = "http://parlbert.lehre.texttechnologylab.org";
 
+    private final List<RemoteComponent> components = new ArrayList<>();
+    private TypeSystemDescription typeSystemDescription;
+    private final CasStore casStore;
+    private final JCasPool casPool;
+    private final AnnotationCache annotationCache;
+    private final AnnotationStore annotationStore;
+    private final DeadLetterQueue deadLetterQueue;
+    private final DeadLetterRetryScheduler retryScheduler;
+    private final ComponentHealthCache healthCache;
+    private final ChunkedAnnotator chunkedAnnotator;
+    private final AnnotationExtractor annotationExtractor = new AnnotationExtractor();
+
+    private final AppConfig config;
+    private final String spacyUrl;
+    private final String gervaderUrl;
+    private final String parlbertUrl;
     private final MongoDBHandler dbConnection;
+    private final int workersCount;
+    private final int batchSize;
+    private final boolean columnarAnnotations;
+
+    // Pending bulk writes of the write stage and progress of the current run
+    private final List<WriteModel<Document>> bulkWrites = new ArrayList<>();
+    private final List<String> bulkWriteIds = new ArrayList<>();
+    private final List<WriteModel<Document>> annotationWrites = new ArrayList<>();
+    private final List<String> annotationWriteIds = new ArrayList<>();
+    private ScanCheckpoint checkpoint;
+    private SpeechLeaseManager leaseManager;
+    private final AtomicInteger writtenCount = new AtomicInteger(0);
+    private final AtomicInteger successCount = new AtomicInteger(0);
+    private final AtomicInteger parkedCount = new AtomicInteger(0);
+    private final Queue<String> parkedScanIds = new ConcurrentLinkedQueue<>();
+    private final PipelineMetrics metrics = new PipelineMetrics();
+    private long runTotalCount;
+    private long runStartTime;
 
     /**
      * Initializes the NLPProcessor, setting up database connections,
@@ -76,33 +111,123 @@ public class NLPProcessor {
      * @throws Exception if initialization fails
      */
     public NLPProcessor() throws Exception {
-        new AppConfig();
+        this.config = new AppConfig();
         this.dbConnection = new MongoDBHandler();
 
-        // Ensure XML directory exists
-        createXmlDirectory();
+        this.spacyUrl = config.getProperty("nlp.component.spacy.url", SPACY_URL).trim();
+        this.gervaderUrl = config.getProperty("nlp.component.gervader.url", GERVADER_URL).trim();
+        this.parlbertUrl = config.getProperty("nlp.component.parlbert.url", PARLBERT_URL).trim();
+
+        // Number of speeches annotated concurrently against the DUUI components
+        this.workersCount = getIntProperty("nlp.workers", DEFAULT_WORKERS_COUNT);
+
+        // With nlp.batch.enabled every annotate worker sends batches of speeches through a DUUI collection reader
+        this.batchSize = Boolean.parseBoolean(config.getProperty("nlp.batch.enabled", "false").trim())
+                ? Math.max(1, getIntProperty("nlp.batch.size", 8))
+                : 0;
+
+        // Stored CAS files, as XMI (optionally gzip-compressed) or compressed binary (nlp.cas.format)
+        this.casStore = CasStore.create(config.getProperty("nlp.cas.format", "xmi"),
+                Paths.get(config.getProperty("nlp.cas.directory", XML_DIRECTORY).trim()),
+                Boolean.parseBoolean(config.getProperty("nlp.cas.compress", "false").trim()));
 
         // Load type system once
         loadTypeSystem();
 
+        // Tokens, sentences and dependencies are stored as rows or, more compactly, as columns
+        this.columnarAnnotations = "columnar".equalsIgnoreCase(config.getProperty("nlp.annotations.layout", "rows").trim());
+
+        // Annotation payloads live in their own collection (or GridFS) unless nlp.annotations.store=inline
+        this.annotationStore = "inline".equalsIgnoreCase(config.getProperty("nlp.annotations.store", "separate").trim())
+                ? null
+                : new AnnotationStore(dbConnection.getMongoDatabase(),
+                        getIntProperty("nlp.annotations.gridFsThresholdMB", 12) * 1024L * 1024L);
+
+        // Failed speeches go to a dead-letter queue and are retried with backoff instead of being set to processed
+        if (Boolean.parseBoolean(config.getProperty("nlp.deadLetter.enabled", "true").trim())) {
+            Backoff retryBackoff = new Backoff(getIntProperty("nlp.deadLetter.baseDelaySeconds", 60) * 1000L,
+                    getIntProperty("nlp.deadLetter.maxDelaySeconds", 3600) * 1000L);
+            this.deadLetterQueue = new DeadLetterQueue(dbConnection.getMongoDatabase(),
+                    getIntProperty("nlp.deadLetter.maxAttempts", 5), retryBackoff::delayMillis);
+            this.retryScheduler = new DeadLetterRetryScheduler(deadLetterQueue, retrySpeechSource(),
+                    getIntProperty("nlp.deadLetter.pollSeconds", 30) * 1000L,
+                    getIntProperty("nlp.deadLetter.claimTimeoutSeconds", 600) * 1000L,
+                    Math.max(1, getQueueCapacity() / 2));
+        } else {
+            this.deadLetterQueue = null;
+            this.retryScheduler = null;
+        }
+
+        // Recent component health results let a restart skip the test documents
+        int healthTtlSeconds = getIntProperty("nlp.warmup.healthTtlSeconds", 300);
+        this.healthCache = healthTtlSeconds > 0
+                ? new ComponentHealthCache(dbConnection.getMongoDatabase(), healthTtlSeconds * 1000L)
+                : null;
+
+        // Results of byte-identical speeches are reused instead of re-annotated; the key includes the stored layout.
+        // Hits are found in the annotation store, which a re-ingestion of the speech does not replace.
+        this.annotationCache = Boolean.parseBoolean(config.getProperty("nlp.cache.enabled", "true").trim())
+                ? new AnnotationCache(dbConnection.getMongoDatabase(),
+                        annotationStore != null ? annotationStore : new AnnotationStore(dbConnection.getMongoDatabase(),
+                                getIntProperty("nlp.annotations.gridFsThresholdMB", 12) * 1024L * 1024L),
+                        pipelineSignature() + (columnarAnnotations ? "|" + AnnotationCodec.FORMAT : ""),
+                        Boolean.parseBoolean(config.getProperty("nlp.cache.recordHits", "false").trim()))
+                : null;
+
+        // Every CAS comes from a bounded pool; it must hold the CASes of all items that can be
+        // in flight at once, i.e. two per item held by an annotate worker plus one per other stage thread and queue slot
+        int queueCapacity = getQueueCapacity();
+        int requiredCases = 2 * workersCount * Math.max(1, batchSize) + 3 * queueCapacity
+                + getIntProperty("nlp.stage.load.threads", 1)
+                + getIntProperty("nlp.stage.serialize.threads", 1)
+                + getIntProperty("nlp.stage.extract.threads", 1);
+
+        // Long speeches can be annotated in sentence windows; every window thread holds one more CAS
+        boolean chunkingEnabled = Boolean.parseBoolean(config.getProperty("nlp.chunk.enabled", "false").trim());
+        int chunkParallelism = getIntProperty("nlp.chunk.parallelism", 4);
+        if (chunkingEnabled) {
+            requiredCases += chunkParallelism;
+        }
+        this.casPool = new JCasPool(typeSystemDescription,
+                Math.max(requiredCases, getIntProperty("nlp.casPool.size", requiredCases)));
+        this.chunkedAnnotator = chunkingEnabled
+                ? new ChunkedAnnotator(casPool, this::runComponents, getIntProperty("nlp.chunk.maxChars", 4000), chunkParallelism)
+                : null;
+
         // Initialize NLP components
         initializeComposer();
         initializePipeline();
     }
 
     /**
-     * Creates the XML directory if it doesn't exist
+     * Identifies the results of the configured components in the annotation cache.
+     *
+     * @return the pipeline signature
      */
-    private void createXmlDirectory() {
-        File xmlDir = new File(XML_DIRECTORY);
-        if (!xmlDir.exists()) {
-            boolean created = xmlDir.mkdirs();
-            if (created) {
-                logger.info("Created XML directory: {}", XML_DIRECTORY);
-            } else {
-                logger.warn("Failed to create XML directory: {}", XML_DIRECTORY);
-            }
-        }
+    private String pipelineSignature() {
+        return spacyUrl + "|" + gervaderUrl + "?selection=text|" + parlbertUrl;
+    }
+
+    /**
+     * Reads an integer setting from config.properties, falling back to a default.
+     *
+     * @param key property key
+     * @param defaultValue value used when the key is missing
+     * @return the configured value
+     */
+    private int getIntProperty(String key, int defaultValue) {
+        return Integer.parseInt(config.getProperty(key, String.valueOf(defaultValue)).trim());
+    }
+
+    /**
+     * Capacity of the queues between the stages. In batch mode a queue holds at least one batch,
+     * so an annotate worker can fill its batch without waiting for the linger time.
+     *
+     * @return the queue capacity
+     */
+    private int getQueueCapacity() {
+        int queueCapacity = getIntProperty("nlp.stage.queueCapacity", workersCount * 2);
+        return Math.max(queueCapacity, batchSize);
     }
 
     /**
@@ -119,30 +244,51 @@ public class NLPProcessor {
 
         logger.info("Loading type system from: {}", typeSystemFile.getAbsolutePath());
         XMLInputSource inputSource = new XMLInputSource(typeSystemFile);
-        typeSystemDescription = UIMAFramework.getXMLParser().parseTypeSystemDescription(inputSource);
+        TypeSystemDescription fileTypeSystem = UIMAFramework.getXMLParser().parseTypeSystemDescription(inputSource);
+
+        // Merge with the types found on the classpath, which JCasFactory would otherwise add per CAS
+        typeSystemDescription = CasCreationUtils.mergeTypeSystems(Arrays.asList(
+                fileTypeSystem, TypeSystemDescriptionFactory.createTypeSystemDescription()));
         logger.info("Type system loaded successfully");
     }
 
     /**
-     * Initializes the DUUI Composer for NLP processing.
+     * Sets up the remote DUUI components. Each component gets its own composer,
+     * circuit breaker and backoff, so failures are retried and tracked per component.
      *
      * @throws Exception if initialization fails
      */
     public void initializeComposer() throws Exception {
-        logger.info("Initializing DUUI Composer with {} workers", WORKERS_COUNT);
-
-        DUUILuaContext ctx = new DUUILuaContext().withJsonLibrary();
-        this.composer = new DUUIComposer()
-                .withSkipVerification(true)
-                .withLuaContext(ctx)
-                .withWorkers(WORKERS_COUNT);
-
-        DUUIUIMADriver uimaDriver = new DUUIUIMADriver();
-        DUUIRemoteDriver remoteDriver = new DUUIRemoteDriver(30000);
-        DUUIDockerDriver dockerDriver = new DUUIDockerDriver();
-
-        composer.addDriver(uimaDriver, remoteDriver, dockerDriver);
-        logger.info("DUUI Composer initialization complete");
+        logger.info("Initializing DUUI components with {} workers", workersCount);
+
+        int maxAttempts = getIntProperty("nlp.component.maxAttempts", MAX_RETRIES);
+        Backoff backoff = new Backoff(getIntProperty("nlp.backoff.baseMillis", 500),
+                getIntProperty("nlp.backoff.maxMillis", 10000));
+        int failureThreshold = getIntProperty("nlp.breaker.failureThreshold", 5);
+        long openMillis = getIntProperty("nlp.breaker.openSeconds", 30) * 1000L;
+        long maxOpenMillis = getIntProperty("nlp.breaker.maxOpenSeconds", 600) * 1000L;
+
+        // Window threads call the components in addition to the annotate workers
+        int componentWorkers = chunkedAnnotator != null
+                ? workersCount + getIntProperty("nlp.chunk.parallelism", 4)
+                : workersCount;
+
+        components.clear();
+        components.add(new RemoteComponent("spacy", spacyUrl, componentWorkers, maxAttempts, backoff,
+                new CircuitBreaker("spacy", failureThreshold, openMillis, maxOpenMillis)));
+        components.add(new RemoteComponent("gervader", gervaderUrl, componentWorkers, maxAttempts, backoff,
+                new CircuitBreaker("gervader", failureThreshold, openMillis, maxOpenMillis))
+                .withParameter("selection", "text"));
+        // ParlBERT-v2
+        components.add(new RemoteComponent("parlbert", parlbertUrl, componentWorkers, maxAttempts, backoff,
+                new CircuitBreaker("parlbert", failureThreshold, openMillis, maxOpenMillis)));
+
+        // Composers are created during the warm-up, see initializePipeline
+        long warmUpWait = getIntProperty("nlp.warmup.waitSeconds", 120) * 1000L;
+        for (RemoteComponent component : components) {
+            component.withMetrics(metrics).withWarmUpWait(warmUpWait);
+        }
+        logger.info("DUUI components initialization complete");
     }
 
     /**
@@ -169,265 +315,494 @@ public class NLPProcessor {
      * Initializes the NLP pipeline with specific processing components.
      * Remote DUUI components prepared by text-technology-lab @Goethe Uni institute of computer science
      * © Goethe University Frankfurt, Institute of Computer science.
-     * @throws Exception if pipeline setup fails
+     * The components warm up in parallel in the background, each probed with its own sample
+     * document unless a recent health result is cached; this method does not wait for them.
+     * A call to a component waits for its warm-up only, so processing starts while slower
+     * components are still being probed. An unavailable component does not stop the processor:
+     * its breaker is open, documents are parked and the component is probed later.
      */
-    public void initializePipeline() throws Exception {
-        composer.resetPipeline();
-
-        // Add remote components with retry logic
-        int retries = 0;
-        boolean success = false;
-
-        while (!success) {
-            try {
-                composer.add(new DUUIRemoteDriver.Component("http://spacy.lehre.texttechnologylab.org")
-                        .withScale(WORKERS_COUNT)
-                        .build());
-
-                composer.add(new DUUIRemoteDriver.Component("http://gervader.lehre.texttechnologylab.org")
-                        .withScale(WORKERS_COUNT)
-                        .withParameter("selection", "text")
-                        .build());
-                // ParlBERT-v2
-                composer.add(new DUUIRemoteDriver.Component("http://parlbert.lehre.texttechnologylab.org")
-                        .withScale(WORKERS_COUNT)
-                        .build());
-
-                // Test the pipeline with a sample document
-                JCas testCas = getCas();
-                composer.run(testCas);
-
-                success = true;
-                logger.info("NLP Pipeline initialized successfully with spaCy and GerVader components");
-            } catch (Exception e) {
-                retries++;
-                logger.warn("Failed to initialize pipeline (attempt {}/{}): {}",
-                        retries, MAX_RETRIES, e.getMessage());
-
-                if (retries >= MAX_RETRIES) {
-                    throw new Exception("Failed to initialize NLP pipeline after " + MAX_RETRIES + " attempts", e);
+    public void initializePipeline() {
+        ExecutorService warmUpExecutor = Executors.newFixedThreadPool(components.size(), runnable -> {
+            Thread thread = new Thread(runnable, "component-warmup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (RemoteComponent component : components) {
+            Boolean cachedHealth = healthCache != null ? healthCache.lookup(component.getUrl()) : null;
+            warmUpExecutor.execute(() -> {
+                boolean healthy = component.warmUp(NLPProcessor::getCas, cachedHealth, batchSize > 0);
+                if (healthCache != null && cachedHealth == null) {
+                    healthCache.record(component.getUrl(), healthy);
                 }
+            });
+        }
+        warmUpExecutor.shutdown();
 
-                // Wait before retrying
-                Thread.sleep(5000);
-                composer.resetPipeline();
-            }
+        CompletableFuture.allOf(components.stream().map(RemoteComponent::getWarmUp).toArray(CompletableFuture[]::new))
+                .thenRun(() -> {
+                    long available = components.stream().filter(component -> component.getWarmUp().join()).count();
+                    if (available == 0) {
+                        logger.error("No remote component is available; documents will be parked until one recovers");
+                    } else {
+                        logger.info("NLP Pipeline initialized with {}/{} components available", available, components.size());
+                    }
+                });
+    }
+
+    /**
+     * Waits until all components have finished their warm-up.
+     *
+     * @param timeoutMillis maximum wait
+     * @return true if at least one component is available
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitComponents(long timeoutMillis) throws InterruptedException {
+        try {
+            CompletableFuture.allOf(components.stream().map(RemoteComponent::getWarmUp).toArray(CompletableFuture[]::new))
+                    .get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            logger.warn("Components still warming up after {} ms", timeoutMillis);
+        } catch (java.util.concurrent.ExecutionException e) {
+            logger.warn("Component warm-up failed: {}", e.getMessage());
         }
+        return components.stream().anyMatch(component -> Boolean.TRUE.equals(component.getWarmUp().getNow(false)));
     }
 
     /**
      * Processes all unprocessed documents in the database.
-     *
+     * Documents stream through the stages load -> annotate -> serialize -> extract -> write,
+     * each with its own thread count and connected by bounded queues.
+     * With nlp.lease.enabled several nodes share the collection by claiming speeches;
+     * otherwise a single resumable scan feeds the pipeline.
      */
     public void processAllDocuments() {
-        MongoCollection<Document> speechCollection = dbConnection.getMongoDatabase()
-                .getCollection("speeches");
+        MongoDatabase database = dbConnection.getMongoDatabase();
+        MongoCollection<Document> speechCollection = database.getCollection("speeches");
+
+        if (Boolean.parseBoolean(config.getProperty("nlp.lease.enabled", "false").trim())) {
+            processClaimedDocuments(speechCollection);
+        } else {
+            processScannedDocuments(database, speechCollection);
+        }
+    }
 
-        // Find total count of unprocessed documents
-        long totalCount = speechCollection.countDocuments(
-                new Document("processed", new Document("$ne", true))
-        );
+    /**
+     * Feeds the pipeline with pages of speeches ordered by _id. Each page is a separate short query
+     * continuing after the last _id read, so no server cursor stays open while the feeder blocks on
+     * a full pipeline and none can time out. The last contiguous _id done is checkpointed so an
+     * interrupted run resumes where it stopped.
+     * While a component's breaker is open the scan pauses instead of parking the rest of the corpus;
+     * the few speeches parked meanwhile are fed again after each page once the components are back.
+     *
+     * @param database the database holding the checkpoint
+     * @param speechCollection the speeches collection
+     */
+    private void processScannedDocuments(MongoDatabase database, MongoCollection<Document> speechCollection) {
+        checkpoint = new ScanCheckpoint(database, "speeches");
+        Object resumeAfter = checkpoint.load();
+
+        // Find total count of unprocessed documents; dead-lettered ones are fed by the retry scheduler
+        Document query = new Document("processed", new Document("$ne", true))
+                .append(DeadLetterQueue.SPEECH_FIELD, new Document("$ne", true));
+        if (resumeAfter != null) {
+            query.append("_id", new Document("$gt", resumeAfter));
+        }
+        long totalCount = speechCollection.countDocuments(query);
 
         logger.info("Found {} unprocessed documents", totalCount);
 
-        if (totalCount == 0) {
+        if (totalCount == 0 && !hasDueRetries()) {
             logger.info("No documents to process");
+            if (resumeAfter != null) {
+                checkpoint.clear();
+            }
             return;
         }
 
-        // Process in batches
-        int totalProcessed = 0;
-        long startTime = System.currentTimeMillis();
-
-        while (totalProcessed < totalCount) {
-            try {
-                // Process a batch
-                int batchProcessed = processBatch();
-
-                if (batchProcessed == 0) {
-                    logger.warn("No documents processed in this batch, possible end of collection");
-                    break;
+        StagedPipeline<SpeechWorkItem> pipeline = startPipeline(totalCount);
+        boolean scanCompleted = false;
+        parkedScanIds.clear();
+        try {
+            Object lastId = resumeAfter;
+            boolean morePages = true;
+            while (morePages) {
+                if (lastId != null) {
+                    query.put("_id", new Document("$gt", lastId));
                 }
-
-                totalProcessed += batchProcessed;
-
-                // Calculate progress and ETA
-                double percentComplete = (double) totalProcessed / totalCount * 100;
-                long elapsedTime = System.currentTimeMillis() - startTime;
-                long estimatedTotalTime = (long) (elapsedTime * (totalCount / (double) totalProcessed));
-                long remainingTime = estimatedTotalTime - elapsedTime;
-
-                logger.info("Processed {}/{} documents ({:.2f}%) - ETA: {} minutes",
-                        totalProcessed, totalCount, percentComplete);
-
-            } catch (Exception e) {
-                logger.error("Error processing batch", e);
+                long fetchStart = System.nanoTime();
+                List<Document> page = speechCollection.find(query)
+                        .sort(Sorts.ascending("_id"))
+                        .limit(BATCH_SIZE)
+                        .into(new ArrayList<>(BATCH_SIZE));
+                metrics.recordSince("mongo.load", fetchStart);
+                morePages = page.size() == BATCH_SIZE;
+
+                // Blocks whenever the load queue is full, so reading never runs ahead of annotation
+                for (Document speech : page) {
+                    lastId = speech.get("_id");
+                    SpeechWorkItem item = new SpeechWorkItem(speech);
+                    checkpoint.register(item.getDocId());
+
+                    awaitAvailableComponents();
+                    long submitStart = System.nanoTime();
+                    pipeline.submit(item);
+                    metrics.recordSince("feed.blocked", submitStart);
+                }
+                refeedParkedDocuments(speechCollection, pipeline);
             }
+            scanCompleted = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Interrupted while reading documents");
+        } catch (Exception e) {
+            logger.error("Error reading documents", e);
         }
 
-        long totalTime = System.currentTimeMillis() - startTime;
-        logger.info("Completed processing all documents in {} minutes", totalTime / 60000);
+        finishPipeline(pipeline);
+
+        // Start from the beginning next time only if the whole collection went through
+        if (scanCompleted && checkpoint.getPendingCount() == 0) {
+            checkpoint.clear();
+        } else {
+            checkpoint.save();
+        }
+        checkpoint = null;
     }
 
     /**
-     * Processes a batch of documents.
+     * Blocks the scan while a component's breaker is open, so the speeches read meanwhile are not
+     * all parked. Once the open period is over the next speech probes the component.
      *
-     * @return Number of documents processed
-     * @throws Exception if processing fails
+     * @throws InterruptedException if interrupted while waiting
      */
-    private int processBatch() throws Exception {
-        // Clear any existing documents
-        listToJCas.clear();
-
-        // Load a batch of documents
-        int documentsLoaded = loadDocumentBatch();
-
-        if (documentsLoaded == 0) {
-            return 0;
+    private void awaitAvailableComponents() throws InterruptedException {
+        RemoteComponent unavailable = findUnavailableComponent();
+        if (unavailable == null) {
+            return;
         }
-
-        // Process the loaded documents
-        processDocuments();
-
-        return documentsLoaded;
+        logger.warn("Pausing the scan: component {} is unavailable until {}",
+                unavailable.getName(), new Date(unavailable.getBreaker().getOpenUntil()));
+        long pauseStart = System.nanoTime();
+        while ((unavailable = findUnavailableComponent()) != null) {
+            long wait = unavailable.getBreaker().getOpenUntil() - System.currentTimeMillis();
+            Thread.sleep(Math.max(10, Math.min(1000, wait)));
+        }
+        metrics.recordSince("feed.paused", pauseStart);
+        logger.info("Resuming the scan");
     }
 
     /**
-     * Loads a batch of documents from MongoDB into memory.
-     * Creates XML files for documents that don't have them yet.
-     * Fixed to avoid annotation accumulation.
+     * Feeds the speeches parked during the scan again once no breaker is open.
+     * Speeches parked after the last page stay parked and are picked up by the next run.
      *
-     * @return Number of documents loaded
-     * @throws Exception if loading fails
+     * @param speechCollection the speeches collection
+     * @param pipeline the running pipeline
+     * @throws InterruptedException if interrupted while waiting for queue space
      */
-    private int loadDocumentBatch() throws Exception {
-        MongoCollection<Document> speechCollection = dbConnection.getMongoDatabase()
-                .getCollection("speeches");
-
-        // Find unprocessed documents
-        Document query = new Document("processed", new Document("$ne", true));
-        FindIterable<Document> speechDocs = speechCollection.find(query).limit(BATCH_SIZE);
-
-        int loadedCount = 0;
+    private void refeedParkedDocuments(MongoCollection<Document> speechCollection,
+                                       StagedPipeline<SpeechWorkItem> pipeline) throws InterruptedException {
+        if (parkedScanIds.isEmpty() || findUnavailableComponent() != null) {
+            return;
+        }
+        List<String> ids = new ArrayList<>();
+        for (String id = parkedScanIds.poll(); id != null; id = parkedScanIds.poll()) {
+            ids.add(id);
+        }
+        List<Document> speeches = speechCollection.find(new Document("_id", new Document("$in", ids))
+                        .append("processed", new Document("$ne", true)))
+                .into(new ArrayList<>());
+        logger.info("Feeding {} parked documents again", speeches.size());
+        for (Document speech : speeches) {
+            awaitAvailableComponents();
+            pipeline.submit(new SpeechWorkItem(speech));
+        }
+    }
 
-        for (Document speechDoc : speechDocs) {
-            String docId = speechDoc.get("_id").toString();
-            Path xmlPath = Paths.get(XML_DIRECTORY, docId + ".xmi");
+    /**
+     * Feeds the pipeline with speeches claimed through leases, so several nodes can
+     * work on the same collection. Claims are made just ahead of the pipeline, which
+     * keeps the number of leases held by this node bounded by the queue capacity.
+     *
+     * @param speechCollection the speeches collection
+     */
+    private void processClaimedDocuments(MongoCollection<Document> speechCollection) {
+        String nodeId = config.getProperty("nlp.node.id", defaultNodeId()).trim();
+        long leaseTtl = getIntProperty("nlp.lease.ttlSeconds", 300) * 1000L;
+        long heartbeat = getIntProperty("nlp.lease.heartbeatSeconds", 60) * 1000L;
+        leaseManager = new SpeechLeaseManager(speechCollection, nodeId, leaseTtl, heartbeat);
 
-            try {
-                JCas jCas;
+        long totalCount = speechCollection.countDocuments(new Document("processed", false)
+                .append(DeadLetterQueue.SPEECH_FIELD, new Document("$ne", true)));
+        logger.info("Node {} found {} unprocessed documents shared with other nodes", nodeId, totalCount);
 
-                // Check if XML file exists
-                if (!Files.exists(xmlPath)) {
-                    logger.info("XML file not found for document {}. Creating new XML file.", docId);
+        if (totalCount == 0 && !hasDueRetries()) {
+            logger.info("No documents to process");
+            leaseManager = null;
+            return;
+        }
 
-                    // Create a new JCas from the speech text in MongoDB
-                    jCas = createJCasFromSpeech(speechDoc);
+        StagedPipeline<SpeechWorkItem> pipeline = startPipeline(totalCount);
+        leaseManager.startHeartbeat();
+        int claimSize = getQueueCapacity();
+        try {
+            while (true) {
+                long claimStart = System.nanoTime();
+                List<Document> claimed = leaseManager.claimBatch(claimSize);
+                metrics.recordSince("mongo.claim", claimStart);
+                if (claimed.isEmpty()) {
+                    break;
+                }
 
-                    // Save the JCas as XML - this should contain ONLY text and metadata
-                    // (no annotations yet)
-                    saveJCasAsXml(jCas, xmlPath.toString());
+                for (Document speechDoc : claimed) {
+                    long submitStart = System.nanoTime();
+                    pipeline.submit(new SpeechWorkItem(speechDoc));
+                    metrics.recordSince("feed.blocked", submitStart);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Interrupted while claiming documents");
+        } catch (Exception e) {
+            logger.error("Error claiming documents", e);
+        }
 
-                    logger.info("Created new XML file for document {}: {}", docId, xmlPath);
-                } else {
-                    // Read existing XML content from file
-                    logger.info("Loading existing XML file for document {}: {}", docId, xmlPath);
+        finishPipeline(pipeline);
+        leaseManager.shutdown();
+        leaseManager = null;
+    }
 
-                    // IMPORTANT: When loading an existing XML file, we should check if it already has annotations
-                    // If it does, we should consider it already processed or create a fresh CAS with just the text
-                    String xmlContent = Files.readString(xmlPath, StandardCharsets.UTF_8);
+    /**
+     * Builds and starts the staged pipeline for a run.
+     *
+     * @param totalCount number of documents expected in this run, used for progress logging
+     * @return the running pipeline
+     */
+    private StagedPipeline<SpeechWorkItem> startPipeline(long totalCount) {
+        runTotalCount = totalCount;
+        runStartTime = System.currentTimeMillis();
+        writtenCount.set(0);
+        successCount.set(0);
+        parkedCount.set(0);
+        metrics.reset();
+
+        StagedPipeline<SpeechWorkItem> pipeline = new StagedPipeline<SpeechWorkItem>("nlp", getQueueCapacity())
+                .addStage("load", getIntProperty("nlp.stage.load.threads", 1),
+                        metrics.timed("stage.load", this::loadDocument));
+        if (batchSize > 0) {
+            pipeline.addBatchStage("annotate", workersCount, batchSize, getIntProperty("nlp.batch.lingerMillis", 200),
+                    metrics.timedBatch("stage.annotate", this::annotateBatch));
+        } else {
+            pipeline.addStage("annotate", workersCount, metrics.timed("stage.annotate", this::annotateDocument));
+        }
+        pipeline.addStage("serialize", getIntProperty("nlp.stage.serialize.threads", 1),
+                        metrics.timed("stage.serialize", this::serializeDocument))
+                .addStage("extract", getIntProperty("nlp.stage.extract.threads", 1),
+                        metrics.timed("stage.extract", this::extractDocument))
+                .addStage("write", 1, metrics.timed("stage.write", this::writeDocument), this::flushBulkWrites)
+                .onError(this::failDocument);
+        pipeline.start();
+        if (retryScheduler != null) {
+            retryScheduler.start(pipeline);
+        }
+        return pipeline;
+    }
 
-                    // Simple check - if the XML contains annotation markers, create a fresh CAS instead
-                    if (xmlContent.contains("<Sentiment")) {
-                        logger.warn("XML file for document {} already contains annotations. Creating fresh CAS.", docId);
+    /**
+     * Waits until the pipeline has drained and logs the run summary.
+     *
+     * @param pipeline the running pipeline
+     */
+    private void finishPipeline(StagedPipeline<SpeechWorkItem> pipeline) {
+        // No retries may be offered once the end of input is signalled
+        if (retryScheduler != null) {
+            retryScheduler.stop();
+        }
+        try {
+            pipeline.finish();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Interrupted while waiting for the pipeline to drain");
+        }
 
-                        // Extract just the document text from the XML (simplified approach)
-                        String docText = extractTextFromXml(xmlContent);
-                        String language = extractLanguageFromXml(xmlContent);
+        long totalTime = System.currentTimeMillis() - runStartTime;
+        logger.info("Completed processing: {}/{} documents successful", successCount.get(), writtenCount.get());
+        if (parkedCount.get() > 0) {
+            logger.info("{} documents parked because a component was unavailable", parkedCount.get());
+        }
+        for (RemoteComponent component : components) {
+            CircuitBreaker breaker = component.getBreaker();
+            logger.info("Component {}: breaker {}, {} failures, {} calls rejected",
+                    component.getName(), breaker.getState(), breaker.getTotalFailures(), breaker.getRejectedCalls());
+            // The next start trusts this result instead of probing the component again
+            if (healthCache != null) {
+                healthCache.record(component.getUrl(), breaker.getState() != CircuitBreaker.State.OPEN);
+            }
+            component.shutdown();
+        }
+        logger.info("Completed processing all documents in {} minutes", totalTime / 60000);
+        casPool.logStats();
+        if (annotationCache != null) {
+            logger.info("Annotation cache: {} hits, {} misses", annotationCache.getHits(), annotationCache.getMisses());
+        }
 
-                        jCas = JCasFactory.createText(docText, language);
+        metrics.logSummary();
+        String metricsFile = config.getProperty("nlp.metrics.file", "nlp-metrics.json").trim();
+        if (!metricsFile.isEmpty()) {
+            metrics.exportJson(Paths.get(metricsFile));
+        }
+    }
 
-                        // Add minimal metadata
-                        DocumentMetaData metadata = new DocumentMetaData(jCas);
-                        metadata.setDocumentId(docId);
-                        metadata.setLanguage(language);
-                        metadata.addToIndexes();
+    /**
+     * @return latency histograms and counters of the current or last run
+     */
+    public PipelineMetrics getMetrics() {
+        return metrics;
+    }
 
-                        // Overwrite the XML with clean version
-                        saveJCasAsXml(jCas, xmlPath.toString());
-                    } else {
-                        // Create CAS and deserialize
-                        CAS cas = CasCreationUtils.createCas(typeSystemDescription, null, null, null);
-                        byte[] byteList = xmlContent.getBytes(StandardCharsets.UTF_8);
-
-                        try (InputStream input = new ByteArrayInputStream(byteList)) {
-                            XmiCasDeserializer.deserialize(input, cas);
-                            jCas = cas.getJCas();
-                        }
-                    }
-                }
+    /**
+     * Returns the CAS held by a work item to the pool.
+     *
+     * @param item the work item
+     */
+    private void releaseCas(SpeechWorkItem item) {
+        casPool.release(item.getJCas());
+        item.setJCas(null);
+    }
 
-                // Basic validation
-                if (jCas.getDocumentText() == null || jCas.getDocumentText().isEmpty()) {
-                    logger.warn("Empty document text for _id: {}", docId);
-                    markDocumentAsProcessed(docId, "Empty document text");
-                    continue;
-                }
+    /**
+     * Default node id for lease claiming: host name and process id.
+     *
+     * @return the node id
+     */
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (IOException e) {
+            host = "unknown-host";
+        }
+        return host + "-" + ProcessHandle.current().pid();
+    }
 
-                listToJCas.put(docId, jCas);
-                loadedCount++;
+    /**
+     * Filter for the final write of a speech. With leases enabled it only matches while
+     * this node still owns the lease, so a speech is never written by two nodes.
+     *
+     * @param docId Document ID
+     * @return filter document
+     */
+    private Document speechFilter(String docId) {
+        return leaseManager != null ? leaseManager.ownedFilter(docId) : new Document("_id", docId);
+    }
 
-                if (loadedCount % 10 == 0) {
-                    logger.info("Loaded {} documents", loadedCount);
-                }
-            } catch (Exception e) {
-                logger.error("Error loading document {}: {}", docId, e.getMessage());
-                markDocumentAsProcessed(docId, "Error: " + e.getMessage());
-            }
+    /**
+     * Fields removed on the final write of a speech: park markers and, with leases, the lease.
+     *
+     * @return the $unset document
+     */
+    private Document finalUnset() {
+        Document unset = new Document("parkedUntil", "").append("parkReason", "");
+        if (leaseManager != null) {
+            unset.putAll(leaseManager.leaseFieldsUnset());
         }
-
-        logger.info("Loaded {} documents for processing", loadedCount);
-        return loadedCount;
+        return unset;
     }
 
     /**
-     * Helper method to extract text from an XML string
+     * Bookkeeping once the final state of a speech has been written.
+     *
+     * @param docId Document ID
      */
-    private String extractTextFromXml(String xmlContent) {
-        // Simple extraction - in a production environment, use proper XML parsing
-        int startIdx = xmlContent.indexOf("<cas:sofa");
-        if (startIdx > 0) {
-            startIdx = xmlContent.indexOf("sofaString=\"", startIdx);
-            if (startIdx > 0) {
-                startIdx += 12; // Length of 'sofaString="'
-                int endIdx = xmlContent.indexOf("\"", startIdx);
-                if (endIdx > startIdx) {
-                    // Decode XML entities
-                    String encodedText = xmlContent.substring(startIdx, endIdx);
-                    return encodedText.replace("&lt;", "<")
-                            .replace("&gt;", ">")
-                            .replace("&amp;", "&")
-                            .replace("&quot;", "\"")
-                            .replace("&apos;", "'");
-                }
-            }
+    private void documentFinished(String docId) {
+        if (checkpoint != null) {
+            checkpoint.complete(docId);
+        }
+        if (leaseManager != null) {
+            leaseManager.release(docId);
         }
-        return ""; // Default to empty string if extraction fails
     }
 
     /**
-     * Helper method to extract language from an XML string
+     * Load stage: turns a speech document into a CAS.
+     * Uses the stored CAS of the document if there is one, otherwise the speech text from MongoDB.
+     *
+     * @param item the speech to load
+     * @return the item with its CAS, or null if the document has no text
+     * @throws Exception if loading fails
      */
-    private String extractLanguageFromXml(String xmlContent) {
-        int startIdx = xmlContent.indexOf("language=\"");
-        if (startIdx > 0) {
-            startIdx += 10; // Length of 'language="'
-            int endIdx = xmlContent.indexOf("\"", startIdx);
-            if (endIdx > startIdx) {
-                return xmlContent.substring(startIdx, endIdx);
+    private SpeechWorkItem loadDocument(SpeechWorkItem item) throws Exception {
+        String docId = item.getDocId();
+
+        JCas jCas;
+
+        // Check if a stored CAS exists
+        if (!casStore.exists(docId)) {
+            logger.info("No stored CAS for document {}. Creating it from the speech text.", docId);
+
+            // Create a new JCas from the speech text in MongoDB
+            long createStart = System.nanoTime();
+            jCas = createJCasFromSpeech(item.getSpeechDoc());
+            item.setJCas(jCas);
+            metrics.recordSince("cas.create", createStart);
+        } else {
+            // Existing annotations are never reused: the annotate stage works on a fresh copy
+            // holding only text and metadata, so there is no annotation accumulation.
+            // XMI files are therefore only inspected in a streaming pass instead of fully deserialized.
+            long readStart = System.nanoTime();
+            XmiInspector.Result stored = casStore.inspect(docId);
+
+            if (stored != null) {
+                logger.info("Inspected stored XMI for document {}: {}", docId, casStore.getPath(docId));
+
+                if (stored.isAnnotated()) {
+                    logger.warn("XML file for document {} already contains annotations. Using text only.", docId);
+                }
+                jCas = createJCas(docId, stored.getText() != null ? stored.getText() : "", stored.getLanguage(),
+                        stored.getDocumentTitle(), stored.getCollectionId());
+                item.setJCas(jCas);
+                metrics.recordSince("cas.read", readStart);
+            } else {
+                logger.info("Loading stored CAS for document {}: {}", docId, casStore.getPath(docId));
+
+                jCas = casPool.acquire();
+                item.setJCas(jCas);
+                casStore.load(docId, jCas.getCas());
+                metrics.recordSince("cas.read", readStart);
+
+                if (JCasUtil.exists(jCas, Sentiment.class)) {
+                    logger.warn("Stored CAS for document {} already contains annotations. Using text only.", docId);
+                }
             }
         }
-        return "de";
+
+        // Basic validation
+        if (jCas.getDocumentText() == null || jCas.getDocumentText().isEmpty()) {
+            logger.warn("Empty document text for _id: {}", docId);
+            releaseCas(item);
+            markDocumentAsProcessed(docId, "Empty document text");
+            return null;
+        }
+
+        // The speech text now lives in the CAS
+        item.setSpeechDoc(null);
+
+        // Reuse the annotations of an identical, already annotated text
+        if (annotationCache != null) {
+            String contentHash = annotationCache.key(jCas.getDocumentText(), jCas.getDocumentLanguage());
+            item.setContentHash(contentHash);
+
+            long lookupStart = System.nanoTime();
+            Document cached = annotationCache.lookup(contentHash);
+            metrics.recordSince("cache.lookup", lookupStart);
+            if (cached != null) {
+                metrics.increment("documents.cacheHits");
+                logger.info("Annotation cache hit for document {}", docId);
+                item.setAnnotations(cached);
+                item.setCacheHit(true);
+                releaseCas(item);
+            }
+        }
+        return item;
     }
 
     /**
@@ -452,18 +827,36 @@ public class NLPProcessor {
             language = "de"; // Default to German
         }
 
-        // Create a new JCas with the speech text
-        JCas jCas = JCasFactory.createText(speechText, language);
+        // Add any additional metadata from MongoDB
+        String collectionId = speechDoc.containsKey("date") ? speechDoc.getString("date") : null;
+
+        return createJCas(docId, speechText, language, speechDoc.getString("title"), collectionId);
+    }
+
+    /**
+     * Fills a pooled JCas with a document text and its metadata.
+     *
+     * @param docId Document ID
+     * @param text Document text
+     * @param language Document language
+     * @param title Document title, may be null
+     * @param collectionId Collection id, may be null
+     * @return JCas object with the text and metadata
+     * @throws Exception if no CAS can be obtained
+     */
+    private JCas createJCas(String docId, String text, String language, String title, String collectionId) throws Exception {
+        // Fill a pooled JCas with the speech text
+        JCas jCas = casPool.acquire();
+        jCas.setDocumentText(text);
+        jCas.setDocumentLanguage(language);
 
         // Add document metadata
         DocumentMetaData metadata = new DocumentMetaData(jCas);
         metadata.setDocumentId(docId);
-        metadata.setDocumentTitle(speechDoc.getString("title"));
+        metadata.setDocumentTitle(title);
         metadata.setLanguage(language);
-
-        // Add any additional metadata from MongoDB
-        if (speechDoc.containsKey("date")) {
-            metadata.setCollectionId(speechDoc.getString("date"));
+        if (collectionId != null) {
+            metadata.setCollectionId(collectionId);
         }
 
         // Add metadata to indexes
@@ -472,24 +865,9 @@ public class NLPProcessor {
         return jCas;
     }
 
-    /**
-     * Saves a JCas object as an XML file.
-     *
-     * @param jCas JCas object to save
-     * @param xmlPath Path to save the XML file
-     * @throws Exception if saving fails
-     */
-    private void saveJCasAsXml(JCas jCas, String xmlPath) throws Exception {
-        try (FileOutputStream out = new FileOutputStream(xmlPath)) {
-            XmiCasSerializer.serialize(jCas.getCas(), out);
-        } catch (Exception e) {
-            logger.error("Error saving JCas as XML: {}", e.getMessage());
-            throw e;
-        }
-    }
-
     /**
      * Marks a document as processed with an error message.
+     * Used for failures that a retry cannot fix, such as a speech without text.
      *
      * @param docId Document ID
      * @param errorMessage Error message
@@ -499,96 +877,441 @@ public class NLPProcessor {
             MongoCollection<Document> speechCollection = dbConnection.getMongoDatabase()
                     .getCollection("speeches");
 
-            Document query = new Document("_id", docId);
+            Document query = speechFilter(docId);
             Document update = new Document("$set", new Document()
                     .append("processed", true)
                     .append("processedAt", new Date())
                     .append("processingError", errorMessage));
+            update.append("$unset", finalUnset().append(DeadLetterQueue.SPEECH_FIELD, ""));
 
             speechCollection.updateOne(query, update);
+            if (deadLetterQueue != null) {
+                deadLetterQueue.resolve(List.of(docId));
+            }
+            metrics.increment("documents.failed");
+            documentFinished(docId);
         } catch (Exception e) {
             logger.error("Failed to mark document {} as processed: {}", docId, e.getMessage());
         }
     }
 
     /**
-     * Processes documents loaded in memory.
+     * Records a failed attempt of a document in the dead-letter queue. The speech stays
+     * unprocessed but is flagged, so only the retry scheduler picks it up again.
+     * Without a dead-letter queue the document is marked as processed with the error.
      *
-     * @throws Exception if processing fails
+     * @param docId Document ID
+     * @param errorClass class of the error
+     * @param errorMessage Error message
      */
-    public void processDocuments() throws Exception {
-        logger.info("Starting NLP document processing for {} documents", listToJCas.size());
-
-        if (listToJCas.isEmpty()) {
-            logger.info("No documents to process");
+    private void markDocumentAsFailed(String docId, String errorClass, String errorMessage) {
+        if (deadLetterQueue == null) {
+            markDocumentAsProcessed(docId, errorMessage);
             return;
         }
+        try {
+            int attempts = deadLetterQueue.record(docId, errorClass, errorMessage);
 
-        // Use bulk operations for efficiency
-        List<WriteModel<Document>> bulkWrites = new ArrayList<>();
-        AtomicInteger processedCount = new AtomicInteger(0);
-        AtomicInteger successCount = new AtomicInteger(0);
-
-        for (Map.Entry<String, JCas> entry : listToJCas.entrySet()) {
-            String docId = entry.getKey();
-            JCas documentCas = entry.getValue();
-            int currentCount = processedCount.incrementAndGet();
+            MongoCollection<Document> speechCollection = dbConnection.getMongoDatabase()
+                    .getCollection("speeches");
+            Document update = new Document("$set", new Document()
+                    .append(DeadLetterQueue.SPEECH_FIELD, true)
+                    .append("failedAttempts", attempts)
+                    .append("processingError", errorMessage));
+            update.append("$unset", finalUnset());
 
-            logger.info("Processing document {}/{}: {}", currentCount, listToJCas.size(), docId);
+            speechCollection.updateOne(speechFilter(docId), update);
+            metrics.increment("documents.deadLettered");
+            documentFinished(docId);
+        } catch (Exception e) {
+            logger.error("Failed to dead-letter document {}: {}", docId, e.getMessage());
+        }
+    }
 
-            try {
-                // CRITICAL CHANGE: Always create a fresh JCas with just the text and metadata
-                // to ensure we don't have annotation accumulation
-                JCas freshCas = createFreshJCasFromDocument(documentCas);
+    /**
+     * Gives the retry scheduler access to the speeches; with leases, a retried speech is claimed first.
+     *
+     * @return the speech source of the retry scheduler
+     */
+    private DeadLetterRetryScheduler.SpeechSource retrySpeechSource() {
+        return new DeadLetterRetryScheduler.SpeechSource() {
+            @Override
+            public Document load(String speechId) {
+                return loadForRetry(speechId);
+            }
 
-                // Run NLP pipeline with retry logic
-                boolean pipelineSuccess = runPipelineWithRetry(docId, freshCas);
+            @Override
+            public boolean isProcessed(String speechId) {
+                return dbConnection.getMongoDatabase().getCollection("speeches")
+                        .find(new Document("_id", speechId).append("processed", true))
+                        .projection(new Document("_id", 1))
+                        .first() != null;
+            }
 
-                if (!pipelineSuccess) {
-                    logger.error("Failed to process document {} after retries", docId);
-                    markDocumentAsProcessed(docId, "Pipeline processing failed after retries");
-                    continue;
+            @Override
+            public void release(String speechId) {
+                SpeechLeaseManager leases = leaseManager;
+                if (leases != null) {
+                    leases.handBack(speechId);
                 }
+            }
+        };
+    }
+
+    /**
+     * Loads a dead-lettered speech for a retry; with leases the speech is claimed first.
+     *
+     * @param docId Document ID
+     * @return the speech, or null if it is processed or leased by another node
+     */
+    private Document loadForRetry(String docId) {
+        SpeechLeaseManager leases = leaseManager;
+        if (leases != null) {
+            return leases.claim(docId);
+        }
+        return dbConnection.getMongoDatabase().getCollection("speeches")
+                .find(new Document("_id", docId).append("processed", new Document("$ne", true)))
+                .first();
+    }
+
+    /**
+     * @return true if dead-lettered speeches are due for a retry
+     */
+    private boolean hasDueRetries() {
+        return deadLetterQueue != null && deadLetterQueue.hasDue();
+    }
 
-                // Update the XML file with the processed JCas
-                Path xmlPath = Paths.get(XML_DIRECTORY, docId + ".xmi");
-                saveJCasAsXml(freshCas, xmlPath.toString());
-                logger.info("Updated XML file with processed annotations: {}", xmlPath);
+    /**
+     * Annotate stage: runs the NLP pipeline on a fresh copy of the loaded CAS.
+     * The worker owns the fresh CAS it creates, so no CAS is ever shared between threads.
+     *
+     * @param item the loaded speech
+     * @return the item with its annotated CAS, or null if the pipeline failed or the document was parked
+     * @throws Exception if creating the fresh CAS fails
+     */
+    private SpeechWorkItem annotateDocument(SpeechWorkItem item) throws Exception {
+        if (item.isCacheHit()) {
+            return item;
+        }
+
+        String docId = item.getDocId();
 
-                // Extract and prepare annotations
-                Document annotationsDoc = extractAnnotations(freshCas);
+        // Do not spend calls on the first components if a later one is known to be down
+        RemoteComponent unavailable = findUnavailableComponent();
+        if (unavailable != null) {
+            parkDocument(item, unavailable.getName(), unavailable.getBreaker().getOpenUntil());
+            return null;
+        }
 
-                // Create update document
-                Document updateDoc = new Document("$set", annotationsDoc
-                        .append("processed", true)
-                        .append("processedAt", new Date())
-                        .append("processingError", null));
+        logger.info("Processing document {}", docId);
+        JCas freshCas = prepareFreshCas(item);
+
+        // Run the components, each with its own retries; long speeches window by window
+        boolean pipelineSuccess;
+        try {
+            if (chunkedAnnotator != null && chunkedAnnotator.shouldSplit(freshCas)) {
+                pipelineSuccess = chunkedAnnotator.annotate(docId, freshCas);
+            } else {
+                pipelineSuccess = runComponents(docId, freshCas);
+            }
+        } catch (ComponentUnavailableException e) {
+            parkDocument(item, e.getComponent(), e.getRetryAt());
+            return null;
+        }
 
-                // Add to bulk write operations
-                bulkWrites.add(new UpdateOneModel<>(
-                        new Document("_id", docId),
-                        updateDoc
-                ));
+        if (!pipelineSuccess) {
+            logger.error("Failed to process document {} after retries", docId);
+            releaseCas(item);
+            markDocumentAsFailed(docId, "ComponentFailure", "Pipeline processing failed after retries");
+            return null;
+        }
 
-                successCount.incrementAndGet();
+        return item;
+    }
 
-                // Execute bulk writes in batches
-                if (bulkWrites.size() >= SAVE_BATCH_SIZE) {
-                    executeBulkWrites(bulkWrites);
-                    bulkWrites.clear();
+    /**
+     * Batch variant of the annotate stage: runs every component once on the whole batch
+     * through a DUUI collection reader. Cache hits pass through; speeches that are split
+     * into windows are annotated on their own.
+     * Errors are handled here item by item and never thrown, as the stage error handler would
+     * fail the whole batch, including cache hits and speeches that were already parked or failed.
+     *
+     * @param items the loaded speeches
+     * @return the annotated speeches; failed and parked ones are left out
+     */
+    private List<SpeechWorkItem> annotateBatch(List<SpeechWorkItem> items) {
+        List<SpeechWorkItem> results = new ArrayList<>();
+        List<SpeechWorkItem> batch = new ArrayList<>();
+        for (SpeechWorkItem item : items) {
+            if (item.isCacheHit()) {
+                results.add(item);
+            } else if (chunkedAnnotator != null && chunkedAnnotator.shouldSplit(item.getJCas())) {
+                try {
+                    SpeechWorkItem annotated = annotateDocument(item);
+                    if (annotated != null) {
+                        results.add(annotated);
+                    }
+                } catch (Exception e) {
+                    failDocument(item, e);
                 }
+            } else {
+                batch.add(item);
+            }
+        }
+        if (batch.isEmpty()) {
+            return results;
+        }
+
+        RemoteComponent unavailable = findUnavailableComponent();
+        if (unavailable != null) {
+            batch.forEach(item -> parkDocument(item, unavailable.getName(), unavailable.getBreaker().getOpenUntil()));
+            return results;
+        }
+
+        logger.info("Processing batch of {} documents", batch.size());
+        Map<JCas, SpeechWorkItem> itemsByCas = new IdentityHashMap<>();
+        for (SpeechWorkItem item : batch) {
+            try {
+                itemsByCas.put(prepareFreshCas(item), item);
+            } catch (Exception e) {
+                failDocument(item, e);
+            }
+        }
+
+        for (RemoteComponent component : components) {
+            if (itemsByCas.isEmpty()) {
+                break;
+            }
+            List<JCas> failed;
+            try {
+                failed = component.processBatch(new ArrayList<>(itemsByCas.keySet()));
+            } catch (ComponentUnavailableException e) {
+                itemsByCas.values().forEach(item -> parkDocument(item, e.getComponent(), e.getRetryAt()));
+                return results;
             } catch (Exception e) {
-                logger.error("Error processing document {}: {}", docId, e.getMessage());
-                markDocumentAsProcessed(docId, "Error: " + e.getMessage());
+                // Only the speeches still in the batch share this failure
+                if (e instanceof InterruptedException) {
+                    Thread.currentThread().interrupt();
+                }
+                itemsByCas.values().forEach(item -> failDocument(item, e));
+                return results;
+            }
+
+            for (JCas jCas : failed) {
+                SpeechWorkItem item = itemsByCas.remove(jCas);
+                logger.error("Component {} failed for document {}", component.getName(), item.getDocId());
+                releaseCas(item);
+                markDocumentAsFailed(item.getDocId(), "ComponentFailure",
+                        "Pipeline processing failed after retries");
+            }
+        }
+
+        results.addAll(itemsByCas.values());
+        return results;
+    }
+
+    /**
+     * Fails a speech after an unexpected error: its CAS goes back to the pool and the speech is dead-lettered.
+     *
+     * @param item the speech
+     * @param e the error
+     */
+    private void failDocument(SpeechWorkItem item, Exception e) {
+        logger.error("Error processing document {}: {}", item.getDocId(), e.getMessage());
+        releaseCas(item);
+        markDocumentAsFailed(item.getDocId(), e.getClass().getName(), "Error: " + e.getMessage());
+    }
+
+    /**
+     * @return a component whose breaker is open, or null if all can be called
+     */
+    private RemoteComponent findUnavailableComponent() {
+        for (RemoteComponent component : components) {
+            if (component.getBreaker().isOpen()) {
+                return component;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Replaces the loaded CAS of an item with a fresh one holding only text and metadata.
+     *
+     * @param item the loaded speech
+     * @return the fresh CAS, now owned by the item
+     * @throws Exception if no CAS can be obtained
+     */
+    private JCas prepareFreshCas(SpeechWorkItem item) throws Exception {
+        // CRITICAL CHANGE: Always create a fresh JCas with just the text and metadata
+        // to ensure we don't have annotation accumulation
+        JCas freshCas = createFreshJCasFromDocument(item.getJCas());
+        releaseCas(item);
+        item.setJCas(freshCas);
+        return freshCas;
+    }
+
+    /**
+     * Serialize stage: stores the processed JCas.
+     *
+     * @param item the annotated speech
+     * @return the same item
+     * @throws Exception if writing the file fails
+     */
+    private SpeechWorkItem serializeDocument(SpeechWorkItem item) throws Exception {
+        if (item.isCacheHit()) {
+            return item;
+        }
+
+        long writeStart = System.nanoTime();
+        casStore.save(item.getDocId(), item.getJCas().getCas());
+        metrics.recordSince("cas.write", writeStart);
+        logger.info("Stored processed annotations: {}", casStore.getPath(item.getDocId()));
+        return item;
+    }
+
+    /**
+     * Extract stage: extracts and prepares annotations, then returns the CAS to the pool.
+     *
+     * @param item the annotated speech
+     * @return the item with its annotations document
+     */
+    private SpeechWorkItem extractDocument(SpeechWorkItem item) {
+        if (item.isCacheHit()) {
+            return item;
+        }
+
+        long extractStart = System.nanoTime();
+        item.setAnnotations(extractAnnotations(item.getJCas()));
+        metrics.recordSince("extractAnnotations", extractStart);
+        releaseCas(item);
+
+        if (columnarAnnotations) {
+            long encodeStart = System.nanoTime();
+            item.setAnnotations(AnnotationCodec.encode(item.getAnnotations()));
+            metrics.recordSince("encodeAnnotations", encodeStart);
+        }
+        return item;
+    }
+
+    /**
+     * Write stage: queues the update for the speech and executes bulk writes in batches.
+     * Runs on a single thread.
+     *
+     * @param item the speech with extracted annotations
+     * @return the same item
+     */
+    private SpeechWorkItem writeDocument(SpeechWorkItem item) {
+        Document fields;
+        Document unset = finalUnset().append(DeadLetterQueue.SPEECH_FIELD, "").append("failedAttempts", "");
+        if (annotationStore != null) {
+            // The payload goes to the annotation store, the speech keeps a summary
+            WriteModel<Document> annotationWrite = annotationStore.prepare(item.getDocId(), item.getAnnotations(),
+                    item.getContentHash());
+            if (annotationWrite != null) {
+                annotationWrites.add(annotationWrite);
+                annotationWriteIds.add(item.getDocId());
+            }
+            fields = AnnotationStore.summarize(item.getAnnotations())
+                    .append(AnnotationStore.STORAGE_FIELD, annotationWrite != null ? "collection" : "gridfs");
+            AnnotationStore.PAYLOAD_FIELDS.forEach(field -> unset.append(field, ""));
+        } else {
+            fields = item.getAnnotations();
+            unset.append(AnnotationStore.STORAGE_FIELD, "");
+            if (!fields.containsKey("annotationFormat")) {
+                // Row layout; drop the marker a columnar run may have left
+                unset.append("annotationFormat", "");
             }
         }
 
-        // Execute any remaining bulk writes
-        if (!bulkWrites.isEmpty()) {
-            executeBulkWrites(bulkWrites);
+        // Create update document
+        Document updateDoc = new Document("$set", fields
+                .append("processed", true)
+                .append("processedAt", new Date())
+                .append("processingError", null));
+        if (item.getContentHash() != null) {
+            // Makes the annotations findable by the cache once the write is flushed
+            fields.append(AnnotationCache.HASH_FIELD, item.getContentHash());
         }
+        updateDoc.append("$unset", unset);
+
+        // Add to bulk write operations
+        bulkWrites.add(new UpdateOneModel<>(
+                speechFilter(item.getDocId()),
+                updateDoc
+        ));
+        bulkWriteIds.add(item.getDocId());
+        item.setAnnotations(null);
+
+        successCount.incrementAndGet();
+        metrics.increment("documents.written");
+        int totalProcessed = writtenCount.incrementAndGet();
+
+        // Execute bulk writes in batches
+        if (bulkWrites.size() >= SAVE_BATCH_SIZE) {
+            flushBulkWrites();
+
+            // Calculate progress and ETA
+            double percentComplete = (double) totalProcessed / runTotalCount * 100;
+            long elapsedTime = System.currentTimeMillis() - runStartTime;
+            long estimatedTotalTime = (long) (elapsedTime * (runTotalCount / (double) totalProcessed));
+            long remainingTime = estimatedTotalTime - elapsedTime;
+
+            logger.info("Processed {}/{} documents ({}%) - ETA: {} minutes",
+                    totalProcessed, runTotalCount, String.format("%.2f", percentComplete),
+                    String.format("%.1f", Math.max(0, remainingTime) / 60000.0));
+        }
+        return item;
+    }
+
+    /**
+     * Executes the pending bulk writes of the write stage.
+     * Only documents that were actually written advance the scan checkpoint.
+     */
+    private void flushBulkWrites() {
+        // Speeches are only marked processed once their annotations are stored
+        if (writeAnnotations() && executeBulkWrites(bulkWrites)) {
+            bulkWriteIds.forEach(this::documentFinished);
+            resolveDeadLetters();
+        }
+        bulkWrites.clear();
+        bulkWriteIds.clear();
+        annotationWrites.clear();
+        annotationWriteIds.clear();
+    }
+
+    /**
+     * Removes the dead-letter entries of the speeches that were just written.
+     */
+    private void resolveDeadLetters() {
+        if (deadLetterQueue == null) {
+            return;
+        }
+        try {
+            deadLetterQueue.resolve(bulkWriteIds);
+        } catch (Exception e) {
+            logger.error("Failed to resolve dead letters: {}", e.getMessage());
+        }
+    }
 
-        logger.info("Completed processing batch: {}/{} documents successful", successCount.get(), processedCount.get());
+    /**
+     * Writes the pending annotation payloads to the annotation store.
+     *
+     * @return true if the payloads were stored or there is no separate store
+     */
+    private boolean writeAnnotations() {
+        if (annotationStore == null) {
+            return true;
+        }
+        try {
+            long start = System.nanoTime();
+            annotationStore.writeAll(annotationWrites);
+            annotationStore.removeFromGridFs(annotationWriteIds);
+            metrics.recordSince("mongo.annotationWrite", start);
+            return true;
+        } catch (Exception e) {
+            logger.error("Writing annotations of {} speeches failed: {}", annotationWriteIds.size(), e.getMessage());
+            return false;
+        }
     }
 
     /**
@@ -599,8 +1322,10 @@ public class NLPProcessor {
      * @return Fresh JCas with only text and metadata
      */
     private JCas createFreshJCasFromDocument(JCas sourceCas) throws Exception {
-        // Create a new JCas with the same text and language
-        JCas freshCas = JCasFactory.createText(sourceCas.getDocumentText(), sourceCas.getDocumentLanguage());
+        // Fill a pooled JCas with the same text and language
+        JCas freshCas = casPool.acquire();
+        freshCas.setDocumentText(sourceCas.getDocumentText());
+        freshCas.setDocumentLanguage(sourceCas.getDocumentLanguage());
 
         // Copy document metadata if it exists
         try {
@@ -627,49 +1352,76 @@ public class NLPProcessor {
     }
 
     /**
-     * Runs the NLP pipeline with retry logic.
+     * Runs the remote components on a document in order.
      *
      * @param docId Document ID
      * @param documentCas The document CAS to process
-     * @return True if processing succeeded, false otherwise
+     * @return True if processing succeeded, false if the document failed in a healthy component
+     * @throws ComponentUnavailableException if a component is down and the document should be parked
      */
-    private boolean runPipelineWithRetry(String docId, JCas documentCas) {
-        int retries = 0;
-        boolean success = false;
-
-        while (retries < MAX_RETRIES && !success) {
+    private boolean runComponents(String docId, JCas documentCas) throws ComponentUnavailableException {
+        for (RemoteComponent component : components) {
             try {
-                // Run the pipeline on the CAS
                 // No need for a fresh CAS on each retry - we already have a clean one from createFreshJCasFromDocument
-                composer.run(documentCas);
-
-                // Update the reference in the map with the processed document
-                listToJCas.put(docId, documentCas);
-
-                success = true;
+                component.process(documentCas);
+            } catch (ComponentUnavailableException e) {
+                throw e;
             } catch (Exception e) {
-                retries++;
-                logger.warn("Pipeline execution failed (attempt {}/{}): {}",
-                        retries, MAX_RETRIES, e.getMessage());
-                if (retries >= MAX_RETRIES) {
-                    logger.error("Pipeline failed after {} retries: {}", MAX_RETRIES, e.getMessage());
-                    return false;
-                }
-                try { Thread.sleep(5000); } catch (InterruptedException ie) { /* Handle */ }
+                logger.error("Component {} failed for document {}: {}", component.getName(), docId, e.getMessage());
+                return false;
             }
         }
-        return success;
+        return true;
     }
 
-    private JCas reloadJCasFromXmi(String docId) throws Exception {
-        Path xmlPath = Paths.get(XML_DIRECTORY, docId + ".xmi");
-        String xmlContent = Files.readString(xmlPath, StandardCharsets.UTF_8);
+    /**
+     * Parks a document whose component is down. It is left unprocessed with the time it
+     * may be retried, so workers move on instead of waiting for the component.
+     * Parked documents do not advance the scan checkpoint; with leases enabled the lease
+     * is handed back with the retry time as its expiry, so no node claims it earlier.
+     *
+     * @param item the parked speech
+     * @param component name of the unavailable component
+     * @param retryAt earliest retry time
+     */
+    private void parkDocument(SpeechWorkItem item, String component, long retryAt) {
+        String docId = item.getDocId();
+        releaseCas(item);
+        parkedCount.incrementAndGet();
+        metrics.increment("documents.parked");
+        Date parkedUntil = new Date(Math.max(retryAt, System.currentTimeMillis()));
+        logger.info("Parking document {} until {}: component {} is unavailable", docId, parkedUntil, component);
 
-        CAS cas = CasCreationUtils.createCas(typeSystemDescription, null, null, null);
-        try (InputStream input = new ByteArrayInputStream(xmlContent.getBytes(StandardCharsets.UTF_8))) {
-            XmiCasDeserializer.deserialize(input, cas);
-            return cas.getJCas();
+        try {
+            dbConnection.getMongoDatabase().getCollection("speeches").updateOne(speechFilter(docId),
+                    new Document("$set", new Document("parkedUntil", parkedUntil)
+                            .append("parkReason", "Component " + component + " unavailable")));
+            if (leaseManager != null) {
+                leaseManager.park(docId, parkedUntil);
+            } else if (checkpoint != null) {
+                // The scan has passed this speech; it feeds it again once the component is back
+                parkedScanIds.add(docId);
+            }
         } catch (Exception e) {
+            logger.error("Failed to park document {}: {}", docId, e.getMessage());
+        }
+    }
+
+    /**
+     * Reloads the stored CAS of a document into a pooled JCas.
+     * The caller has to return it with {@link JCasPool#release(JCas)}.
+     *
+     * @param docId Document ID
+     * @return the stored JCas
+     * @throws Exception if the CAS cannot be read
+     */
+    private JCas reloadJCasFromStore(String docId) throws Exception {
+        JCas jCas = casPool.acquire();
+        try {
+            casStore.load(docId, jCas.getCas());
+            return jCas;
+        } catch (Exception e) {
+            casPool.release(jCas);
             logger.error("Failed to reload JCas for document {}: {}", docId, e.getMessage());
             throw e;
         }
@@ -679,165 +1431,36 @@ public class NLPProcessor {
      * Executes bulk write operations to MongoDB.
      *
      * @param bulkWrites List of write operations
+     * @return True if the bulk write succeeded
      */
-    private void executeBulkWrites(List<WriteModel<Document>> bulkWrites) {
+    private boolean executeBulkWrites(List<WriteModel<Document>> bulkWrites) {
         if (bulkWrites.isEmpty()) {
-            return;
+            return true;
         }
 
         MongoCollection<Document> speechCollection = dbConnection.getMongoDatabase()
                 .getCollection("speeches");
 
         try {
+            long bulkStart = System.nanoTime();
             BulkWriteResult result = speechCollection.bulkWrite(bulkWrites, new BulkWriteOptions().ordered(false));
+            metrics.recordSince("mongo.bulkWrite", bulkStart);
             logger.info("Bulk write completed: {} documents modified", result.getModifiedCount());
+            return true;
         } catch (Exception e) {
             logger.error("Bulk write failed: {}", e.getMessage());
+            return false;
         }
     }
 
     /**
      * Extracts all annotations from a document CAS.
-     * New implementation that properly extracts only valid annotations.
      *
      * @param jCas The document CAS
      * @return Document containing all annotations
      */
     private Document extractAnnotations(JCas jCas) {
-        // Extract all annotations in a single pass
-        List<Document> tokenDocs = new ArrayList<>();
-        List<Document> sentenceDocs = new ArrayList<>();
-        List<Document> namedEntityDocs = new ArrayList<>();
-        List<Document> dependencyDocs = new ArrayList<>();
-        List<Document> sentimentDocs = new ArrayList<>();
-        List<Document> topicsList = new ArrayList<>();
-        Map<String, CategoryCoveredTagged> highestScoreTopic = new HashMap<>();
-
-        // Process sentences and contained annotations
-        double sentimentSum = 0.0;
-        int sentimentCount = 0;
-
-        // Create a set to track which annotations we've already processed
-        // to prevent duplicate processing
-        Set<Integer> processedSentiments = new HashSet<>();
-        Set<Integer> processedEntities = new HashSet<>();
-        Set<Integer> processedDependencies = new HashSet<>();
-
-        for (Sentence sentence : JCasUtil.select(jCas, Sentence.class)) {
-            // Process sentence
-            Document sentenceDoc = new Document()
-                    .append("text", sentence.getCoveredText())
-                    .append("begin", sentence.getBegin())
-                    .append("end", sentence.getEnd());
-
-            // Process tokens in this sentence
-            List<Token> tokens = JCasUtil.selectCovered(Token.class, sentence);
-            sentenceDoc.append("tokenCount", tokens.size());
-            sentenceDocs.add(sentenceDoc);
-
-            for (Token t : tokens) {
-                Document tokenDoc = new Document()
-                        .append("lemmaValue", t.getLemmaValue())
-                        .append("pos", t.getPosValue())
-                        .append("text", t.getText())
-                        .append("begin", t.getBegin())
-                        .append("end", t.getEnd());
-                tokenDocs.add(tokenDoc);
-            }
-
-            // Process dependencies in this sentence using a tracking set to prevent duplicates
-            for (Dependency dep : JCasUtil.selectCovered(Dependency.class, sentence)) {
-                int depHash = Objects.hash(dep.getBegin(), dep.getEnd(), dep.getDependencyType());
-                if (!processedDependencies.contains(depHash) && dep.getDependencyType() != null) {
-                    processedDependencies.add(depHash);
-
-                    Document dependencyDoc = new Document()
-                            .append("dependencyType", dep.getDependencyType())
-                            .append("text", dep.getCoveredText())
-                            .append("begin", dep.getBegin())
-                            .append("end", dep.getEnd());
-                    dependencyDocs.add(dependencyDoc);
-                }
-            }
-
-            // Process sentiment in this sentence using a tracking set to prevent duplicates
-            for (Sentiment sentiment : JCasUtil.selectCovered(Sentiment.class, sentence)) {
-                int sentHash = Objects.hash(sentiment.getBegin(), sentiment.getEnd());
-                if (!processedSentiments.contains(sentHash)) {
-                    processedSentiments.add(sentHash);
-
-                    double sentimentValue = sentiment.getSentiment();
-                    sentimentSum += sentimentValue;
-                    sentimentCount++;
-
-                    Document sentimentDoc = new Document()
-                            .append("sentiment_value", sentimentValue)
-                            .append("sentence", sentiment.getCoveredText())
-                            .append("begin", sentiment.getBegin())
-                            .append("end", sentiment.getEnd());
-                    sentimentDocs.add(sentimentDoc);
-                }
-            }
-        }
-
-        // Process named entities using a tracking set to prevent duplicates
-        for (NamedEntity ne : JCasUtil.select(jCas, NamedEntity.class)) {
-            int neHash = Objects.hash(ne.getBegin(), ne.getEnd(), ne.getValue());
-            if (!processedEntities.contains(neHash) && ne.getValue() != null) {
-                processedEntities.add(neHash);
-
-                Document neDoc = new Document()
-                        .append("value", ne.getValue())
-                        .append("text", ne.getCoveredText())
-                        .append("begin", ne.getBegin())
-                        .append("end", ne.getEnd());
-                namedEntityDocs.add(neDoc);
-            }
-        }
-
-        // Process topic annotations
-        List<String> topics = new ArrayList<>();
-
-        JCasUtil.select(jCas, CategoryCoveredTagged.class).forEach(topic -> {
-            if (topic.getValue() != null) {
-                String sentence = topic.getBegin() + "-" + topic.getEnd();
-
-                if (!highestScoreTopic.containsKey(sentence) ||
-                        topic.getScore() > highestScoreTopic.get(sentence).getScore()) {
-                    highestScoreTopic.put(sentence, topic);
-                }
-            }
-        });
-
-        for (CategoryCoveredTagged highestTopic : highestScoreTopic.values()) {
-            topics.add(highestTopic.getValue());
-
-            Document topicDoc = new Document("topic", highestTopic.getValue())
-                    .append("score", highestTopic.getScore())
-                    .append("begin", highestTopic.getBegin())
-                    .append("end", highestTopic.getEnd());
-            topicsList.add(topicDoc);
-        }
-
-        // Calculate average sentiment
-        double averageSentiment = sentimentCount > 0 ? sentimentSum / sentimentCount : 0.0;
-
-        // Create a document with all annotations
-        Document result = new Document()
-                .append("token", tokenDocs)
-                .append("sentence", sentenceDocs)
-                .append("namedEntities", namedEntityDocs)
-                .append("dependency", dependencyDocs)
-                .append("sentiment", sentimentDocs)
-                .append("average_sentiment", averageSentiment)
-                .append("topics", topicsList);
-        //.append("topic_list", topics);
-
-        logger.info("Extracted counts - Sentences: {}, Tokens: {}, NEs: {}, Dependencies: {}, Sentiments: {}, Topics: {}",
-                sentenceDocs.size(), tokenDocs.size(), namedEntityDocs.size(),
-                dependencyDocs.size(), sentimentDocs.size(), topicsList.size());
-
-        return result;
+        return annotationExtractor.extract(jCas);
     }
 
     /**
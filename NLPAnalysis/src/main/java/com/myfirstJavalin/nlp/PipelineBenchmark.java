@@ -0,0 +1,156 @@
+package com.myfirstJavalin.nlp;
+
+import com.mongodb.client.MongoDatabase;
+import com.myfirstJavalin.database.AnnotationStore;
+import com.myfirstJavalin.database.DeadLetterQueue;
+import com.myfirstJavalin.database.MongoDBHandler;
+import org.bson.Document;
+import org.bson.json.JsonWriterSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * End-to-end throughput benchmark of the {@link NLPProcessor} against local
+ * {@link FakeDuuiComponent}s instead of the remote components of the university network.
+ * A benchmark database is filled with synthetic speeches generated from a fixed seed, the
+ * processor annotates them with its regular configuration, and the pipeline metrics are
+ * exported as JSON, so runs before and after a change can be compared.
+ * Needs a reachable MongoDB (mongo.uri); all other settings can be passed as -D system properties:
+ * <ul>
+ *     <li>bench.database: benchmark database, dropped and refilled on every run (nlp_benchmark)</li>
+ *     <li>bench.speeches / bench.sentences: number and length of the synthetic speeches (200 / 40)</li>
+ *     <li>bench.latencyMillis / bench.latencyPerKiloCharMillis: injected component latency (20 / 5)</li>
+ *     <li>bench.errorRate: share of failing component calls (0)</li>
+ *     <li>bench.seed: seed of texts and error injection (42)</li>
+ *     <li>bench.results: JSON file of the results (benchmark-results.json)</li>
+ *     <li>any nlp.* key of config.properties, e.g. -Dnlp.workers=4</li>
+ * </ul>
+ */
+public class PipelineBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(PipelineBenchmark.class);
+
+    private static final String[] WORDS = {"der", "die", "das", "und", "nicht", "wir", "Sie", "haben", "werden",
+            "Bundesregierung", "Antrag", "Haushalt", "Kolleginnen", "Kollegen", "Deutschland", "Europa", "Gesetz",
+            "Menschen", "Zukunft", "Verantwortung", "Klimaschutz", "Wirtschaft", "Bildung", "Rente", "Pflege",
+            "müssen", "sollten", "heute", "wichtig", "gemeinsam", "deshalb", "Frau", "Präsidentin", "Herr",
+            "Minister", "Fraktion", "Ausschuss", "Milliarden", "Euro", "Jahr", "2024", "Berlin", "Länder", "Kommunen"};
+
+    public static void main(String[] args) {
+        List<FakeDuuiComponent> fakes = new ArrayList<>();
+        int exitCode = 0;
+        try {
+            long seed = Long.getLong("bench.seed", 42L);
+            long latency = Long.getLong("bench.latencyMillis", 20L);
+            long latencyPerKiloChar = Long.getLong("bench.latencyPerKiloCharMillis", 5L);
+            double errorRate = Double.parseDouble(System.getProperty("bench.errorRate", "0"));
+
+            for (FakeDuuiComponent.Kind kind : FakeDuuiComponent.Kind.values()) {
+                FakeDuuiComponent fake = new FakeDuuiComponent(kind, 0, latency, latencyPerKiloChar,
+                        errorRate, seed + kind.ordinal());
+                fake.start(Integer.getInteger("bench.serverThreads", 16));
+                fakes.add(fake);
+                System.setProperty("nlp.component." + kind.name().toLowerCase() + ".url", fake.getUrl());
+            }
+
+            // Everything the run touches lives in the benchmark database and a scratch CAS directory
+            System.setProperty("mongo.database", System.getProperty("bench.database", "nlp_benchmark"));
+            Path casDirectory = Files.createTempDirectory("nlp-benchmark-cas");
+            System.setProperty("nlp.cas.directory", casDirectory.toString());
+            System.setProperty("nlp.cache.enabled", System.getProperty("nlp.cache.enabled", "false"));
+            System.setProperty("nlp.metrics.file", "");
+
+            MongoDBHandler handler = new MongoDBHandler();
+            seedSpeeches(handler.getMongoDatabase(), Integer.getInteger("bench.speeches", 200),
+                    Integer.getInteger("bench.sentences", 40), seed);
+
+            NLPProcessor processor = new NLPProcessor();
+            long start = System.nanoTime();
+            processor.processAllDocuments();
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+            PipelineMetrics metrics = processor.getMetrics();
+            long written = metrics.getCounter("documents.written");
+            Document results = new Document("elapsedMs", elapsedMillis)
+                    .append("speechesPerSecond", written * 1000.0 / Math.max(1, elapsedMillis))
+                    .append("settings", settings())
+                    .append("metrics", metrics.toDocument());
+            List<Document> servers = new ArrayList<>();
+            for (FakeDuuiComponent fake : fakes) {
+                servers.add(new Document("url", fake.getUrl())
+                        .append("requests", fake.getRequests())
+                        .append("injectedErrors", fake.getInjectedErrors()));
+            }
+            results.append("components", servers);
+
+            Path resultsFile = Paths.get(System.getProperty("bench.results", "benchmark-results.json"));
+            Files.writeString(resultsFile, results.toJson(JsonWriterSettings.builder().indent(true).build()));
+            logger.info("Benchmark: {} speeches written in {} ms ({} speeches/s), results in {}",
+                    written, elapsedMillis, String.format("%.2f", results.getDouble("speechesPerSecond")), resultsFile);
+            handler.close();
+        } catch (Exception e) {
+            logger.error("Benchmark failed", e);
+            exitCode = 1;
+        } finally {
+            fakes.forEach(FakeDuuiComponent::stop);
+        }
+        // DUUI keeps non-daemon threads alive
+        System.exit(exitCode);
+    }
+
+    /**
+     * Replaces the speeches of the benchmark database with synthetic ones.
+     * The same seed always produces the same speeches.
+     */
+    private static void seedSpeeches(MongoDatabase database, int count, int sentences, long seed) {
+        for (String collection : List.of("speeches", AnnotationStore.COLLECTION, AnnotationStore.COLLECTION + ".files",
+                AnnotationStore.COLLECTION + ".chunks", DeadLetterQueue.COLLECTION, "scanCheckpoints", "componentHealth")) {
+            database.getCollection(collection).drop();
+        }
+
+        Random random = new Random(seed);
+        List<Document> speeches = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            speeches.add(new Document("_id", String.format("BENCH%06d", i))
+                    .append("text", speechText(random, sentences))
+                    .append("language", "de")
+                    .append("title", "Benchmark speech " + i));
+        }
+        database.getCollection("speeches").insertMany(speeches);
+        logger.info("Seeded {} synthetic speeches of {} sentences", count, sentences);
+    }
+
+    private static String speechText(Random random, int sentences) {
+        StringBuilder text = new StringBuilder();
+        for (int s = 0; s < sentences; s++) {
+            int words = 6 + random.nextInt(20);
+            for (int w = 0; w < words; w++) {
+                String word = WORDS[random.nextInt(WORDS.length)];
+                if (w == 0) {
+                    word = Character.toUpperCase(word.charAt(0)) + word.substring(1);
+                }
+                text.append(word).append(w + 1 < words ? (random.nextInt(12) == 0 ? ", " : " ") : "");
+            }
+            text.append(random.nextInt(8) == 0 ? "! " : ". ");
+            if (random.nextInt(6) == 0) {
+                text.append("\n\n");
+            }
+        }
+        return text.toString().trim();
+    }
+
+    private static Document settings() {
+        Document settings = new Document();
+        System.getProperties().stringPropertyNames().stream()
+                .filter(key -> key.startsWith("bench.") || key.startsWith("nlp."))
+                .sorted()
+                .forEach(key -> settings.append(key, System.getProperty(key)));
+        return settings;
+    }
+}
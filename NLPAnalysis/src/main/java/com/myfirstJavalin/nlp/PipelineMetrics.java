@@ -0,0 +1,175 @@
+package com.myfirstJavalin.nlp;
+
+import org.bson.Document;
+import org.bson.json.JsonWriterSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latency histograms and counters of one processing run.
+ * Timers are named by the step they measure, e.g. "cas.read", "component.spacy" or "mongo.bulkWrite";
+ * throughput is derived from the number of measurements and the run time.
+ * The metrics are logged as a run summary and can be exported as JSON.
+ */
+public class PipelineMetrics {
+    private static final Logger logger = LoggerFactory.getLogger(PipelineMetrics.class);
+
+    private final Map<String, LatencyHistogram> timers = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> counters = new ConcurrentHashMap<>();
+    private volatile long startMillis = System.currentTimeMillis();
+
+    /**
+     * Clears all metrics and restarts the run clock.
+     */
+    public void reset() {
+        timers.clear();
+        counters.clear();
+        startMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * Records the time elapsed since a start taken with {@link System#nanoTime()}.
+     *
+     * @param name timer name
+     * @param startNanos start of the measured step
+     */
+    public void recordSince(String name, long startNanos) {
+        record(name, System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Records a duration.
+     *
+     * @param name timer name
+     * @param nanos duration in nanoseconds
+     */
+    public void record(String name, long nanos) {
+        timers.computeIfAbsent(name, key -> new LatencyHistogram()).record(nanos);
+    }
+
+    /**
+     * Increments a counter.
+     *
+     * @param name counter name
+     */
+    public void increment(String name) {
+        counters.computeIfAbsent(name, key -> new AtomicLong()).incrementAndGet();
+    }
+
+    /**
+     * Wraps a pipeline stage so every call is timed.
+     *
+     * @param name timer name
+     * @param function the stage function
+     * @param <T> item type
+     * @return the timed stage function
+     */
+    public <T> StagedPipeline.StageFunction<T> timed(String name, StagedPipeline.StageFunction<T> function) {
+        return item -> {
+            long start = System.nanoTime();
+            try {
+                return function.apply(item);
+            } finally {
+                recordSince(name, start);
+            }
+        };
+    }
+
+    /**
+     * Wraps a batch stage so every batch is timed.
+     *
+     * @param name timer name
+     * @param function the batch function
+     * @param <T> item type
+     * @return the timed batch function
+     */
+    public <T> StagedPipeline.BatchFunction<T> timedBatch(String name, StagedPipeline.BatchFunction<T> function) {
+        return items -> {
+            long start = System.nanoTime();
+            try {
+                return function.apply(items);
+            } finally {
+                recordSince(name, start);
+            }
+        };
+    }
+
+    public LatencyHistogram getTimer(String name) {
+        return timers.get(name);
+    }
+
+    public long getCounter(String name) {
+        AtomicLong counter = counters.get(name);
+        return counter == null ? 0 : counter.get();
+    }
+
+    /**
+     * @return all metrics with per-timer throughput, sorted by name
+     */
+    public Document toDocument() {
+        long elapsedMillis = Math.max(1, System.currentTimeMillis() - startMillis);
+
+        Document timerDocs = new Document();
+        new TreeMap<>(timers).forEach((name, histogram) -> timerDocs.append(name, histogram.toDocument()
+                .append("perSecond", histogram.getCount() * 1000.0 / elapsedMillis)));
+
+        Document counterDocs = new Document();
+        new TreeMap<>(counters).forEach((name, counter) -> counterDocs.append(name, counter.get()));
+
+        return new Document("startedAt", new Date(startMillis))
+                .append("elapsedMs", elapsedMillis)
+                .append("timers", timerDocs)
+                .append("counters", counterDocs);
+    }
+
+    /**
+     * Writes the metrics as JSON.
+     *
+     * @param file target file
+     */
+    public void exportJson(Path file) {
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            Files.writeString(file, toDocument().toJson(JsonWriterSettings.builder().indent(true).build()),
+                    StandardCharsets.UTF_8);
+            logger.info("Pipeline metrics written to {}", file);
+        } catch (IOException e) {
+            logger.error("Failed to write pipeline metrics to {}: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Logs one line per timer, slowest total time first, followed by the counters.
+     */
+    public void logSummary() {
+        long elapsedMillis = Math.max(1, System.currentTimeMillis() - startMillis);
+        logger.info("Pipeline metrics after {} s (timer: count, total, p50/p95/p99/max, per second):", elapsedMillis / 1000);
+        timers.entrySet().stream()
+                .sorted((a, b) -> Long.compare(b.getValue().getTotalMicros(), a.getValue().getTotalMicros()))
+                .forEach(entry -> {
+                    LatencyHistogram histogram = entry.getValue();
+                    logger.info("  {}: {}, {} ms, {}/{}/{}/{} ms, {}/s",
+                            entry.getKey(), histogram.getCount(), histogram.getTotalMicros() / 1000,
+                            format(histogram.percentileMicros(50)), format(histogram.percentileMicros(95)),
+                            format(histogram.percentileMicros(99)), format(histogram.getMaxMicros()),
+                            String.format("%.2f", histogram.getCount() * 1000.0 / elapsedMillis));
+                });
+        new TreeMap<>(counters).forEach((name, counter) -> logger.info("  {}: {}", name, counter.get()));
+    }
+
+    private static String format(long micros) {
+        return String.format("%.1f", micros / 1000.0);
+    }
+}
@@ -0,0 +1,405 @@
+package com.myfirstJavalin.nlp;
+
+import org.apache.uima.jcas.JCas;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.texttechnologylab.DockerUnifiedUIMAInterface.DUUIComposer;
+import org.texttechnologylab.DockerUnifiedUIMAInterface.driver.DUUIRemoteDriver;
+import org.texttechnologylab.DockerUnifiedUIMAInterface.driver.DUUIUIMADriver;
+import org.texttechnologylab.DockerUnifiedUIMAInterface.io.DUUIAsynchronousProcessor;
+import org.texttechnologylab.DockerUnifiedUIMAInterface.lua.DUUILuaContext;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.apache.uima.fit.factory.AnalysisEngineFactory.createEngineDescription;
+
+/**
+ * A single remote DUUI component with its own composer, circuit breaker and retry policy.
+ * Keeping the components apart means a failing component is retried and tracked on its own
+ * instead of re-running the whole pipeline, and an outage of one component does not
+ * hold up calls that never reach it.
+ */
+public class RemoteComponent {
+    private static final Logger logger = LoggerFactory.getLogger(RemoteComponent.class);
+
+    private final String name;
+    private final String url;
+    private final Map<String, String> parameters = new LinkedHashMap<>();
+    private final int workers;
+    private final int maxAttempts;
+    private final Backoff backoff;
+    private final CircuitBreaker breaker;
+    private PipelineMetrics metrics = new PipelineMetrics();
+    private volatile DUUIComposer composer;
+    private volatile DUUIComposer batchComposer;
+    private final Object batchLock = new Object();
+    private final CompletableFuture<Boolean> warmedUp = new CompletableFuture<>();
+    private long warmUpWaitMillis = 120000;
+
+    /**
+     * @param name short name of the component, e.g. "spacy"
+     * @param url URL of the remote component
+     * @param workers number of parallel calls the component has to serve
+     * @param maxAttempts attempts per document before the document counts as failed
+     * @param backoff delay policy between attempts
+     * @param breaker circuit breaker of this component
+     */
+    public RemoteComponent(String name, String url, int workers, int maxAttempts, Backoff backoff, CircuitBreaker breaker) {
+        this.name = name;
+        this.url = url;
+        this.workers = workers;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoff = backoff;
+        this.breaker = breaker;
+    }
+
+    /**
+     * Adds a parameter passed to the component with every call.
+     *
+     * @param key parameter name
+     * @param value parameter value
+     * @return this component
+     */
+    public RemoteComponent withParameter(String key, String value) {
+        parameters.put(key, value);
+        return this;
+    }
+
+    /**
+     * Records call latencies as "component.&lt;name&gt;" in the given metrics.
+     *
+     * @param metrics the metrics of the processor
+     * @return this component
+     */
+    public RemoteComponent withMetrics(PipelineMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    /**
+     * Sets how long a call waits for the warm-up of this component before the document is parked.
+     *
+     * @param millis maximum wait in milliseconds
+     * @return this component
+     */
+    public RemoteComponent withWarmUpWait(long millis) {
+        this.warmUpWaitMillis = millis;
+        return this;
+    }
+
+    /**
+     * Prepares the component for use: creates its composers and, unless a recent health result
+     * is known, runs a test document through it once. Calls made before the warm-up has finished
+     * wait for it, so the warm-up can run in the background while processing starts.
+     *
+     * @param testCas supplies the test document
+     * @param cachedHealth health known from a recent check, or null to probe the component
+     * @param batchMode whether the batch composer is needed
+     * @return true if the component is considered available
+     */
+    public boolean warmUp(Callable<JCas> testCas, Boolean cachedHealth, boolean batchMode) {
+        long start = System.currentTimeMillis();
+        boolean healthy;
+        try {
+            initialize();
+            if (batchMode) {
+                initializeBatchMode();
+            }
+            if (cachedHealth != null) {
+                healthy = cachedHealth;
+                if (!healthy) {
+                    breaker.trip();
+                }
+                logger.info("Remote component {} is {} according to a recent check", name, healthy ? "available" : "unavailable");
+            } else {
+                healthy = checkHealth(testCas.call());
+            }
+        } catch (Exception e) {
+            logger.warn("Warm-up of component {} failed: {}", name, e.getMessage());
+            breaker.trip();
+            healthy = false;
+        }
+        logger.info("Remote component {} warmed up in {} ms", name, System.currentTimeMillis() - start);
+        warmedUp.complete(healthy);
+        return healthy;
+    }
+
+    /**
+     * @return completes with the warm-up result once the component is ready for calls
+     */
+    public CompletableFuture<Boolean> getWarmUp() {
+        return warmedUp;
+    }
+
+    private void awaitWarmUp() throws ComponentUnavailableException, InterruptedException {
+        if (warmedUp.isDone()) {
+            return;
+        }
+        try {
+            warmedUp.get(warmUpWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            metrics.increment("component." + name + ".warmUpTimeout");
+            throw new ComponentUnavailableException(name, System.currentTimeMillis() + warmUpWaitMillis, e);
+        } catch (ExecutionException e) {
+            throw new ComponentUnavailableException(name, breaker.getOpenUntil(), e);
+        }
+    }
+
+    /**
+     * Creates the composer of this component.
+     *
+     * @throws Exception if the composer cannot be created
+     */
+    public void initialize() throws Exception {
+        DUUIComposer newComposer = new DUUIComposer()
+                .withSkipVerification(true)
+                .withLuaContext(new DUUILuaContext().withJsonLibrary())
+                .withWorkers(workers);
+        newComposer.addDriver(new DUUIRemoteDriver(30000));
+
+        DUUIRemoteDriver.Component component = new DUUIRemoteDriver.Component(url).withScale(workers);
+        parameters.forEach(component::withParameter);
+        newComposer.add(component.build());
+
+        this.composer = newComposer;
+        logger.info("Remote component {} configured at {}", name, url);
+    }
+
+    /**
+     * Creates the composer used for batches: the remote component followed by a
+     * {@link BatchResultCollector} that hands the results back.
+     *
+     * @throws Exception if the composer cannot be created
+     */
+    public void initializeBatchMode() throws Exception {
+        DUUIComposer newComposer = new DUUIComposer()
+                .withSkipVerification(true)
+                .withLuaContext(new DUUILuaContext().withJsonLibrary())
+                .withWorkers(workers);
+        newComposer.addDriver(new DUUIRemoteDriver(30000), new DUUIUIMADriver());
+
+        DUUIRemoteDriver.Component component = new DUUIRemoteDriver.Component(url).withScale(workers);
+        parameters.forEach(component::withParameter);
+        newComposer.add(component.build());
+        newComposer.add(new DUUIUIMADriver.Component(createEngineDescription(BatchResultCollector.class)).build());
+
+        this.batchComposer = newComposer;
+        logger.info("Remote component {} configured for batches", name);
+    }
+
+    /**
+     * Runs the component on a CAS, retrying with backoff. Waits for the warm-up first.
+     *
+     * @param jCas the CAS to annotate
+     * @throws ComponentUnavailableException if the breaker is open or opened while retrying, or the warm-up takes too long
+     * @throws Exception the last failure if all attempts failed while the component is still considered healthy
+     */
+    public void process(JCas jCas) throws Exception {
+        awaitWarmUp();
+        run(jCas, maxAttempts);
+    }
+
+    private void run(JCas jCas, int attempts) throws Exception {
+        Exception lastFailure = null;
+        for (int attempt = 1; attempt <= attempts; attempt++) {
+            // Fast fail: never wait on a component that is known to be down
+            if (!breaker.allowRequest()) {
+                metrics.increment("component." + name + ".rejected");
+                throw new ComponentUnavailableException(name, breaker.getOpenUntil(), lastFailure);
+            }
+
+            long start = System.nanoTime();
+            try {
+                composerForCall().run(jCas);
+                metrics.recordSince("component." + name, start);
+                breaker.recordSuccess();
+                return;
+            } catch (InterruptedException e) {
+                // The call says nothing about the component; a later call may probe it
+                breaker.abortProbe();
+                Thread.currentThread().interrupt();
+                throw e;
+            } catch (Exception e) {
+                lastFailure = e;
+                metrics.recordSince("component." + name + ".failed", start);
+                breaker.recordFailure();
+                logger.warn("Component {} failed (attempt {}/{}): {}", name, attempt, attempts, e.getMessage());
+
+                if (breaker.isOpen()) {
+                    throw new ComponentUnavailableException(name, breaker.getOpenUntil(), e);
+                }
+                if (attempt < attempts) {
+                    backoff.pause(attempt);
+                }
+            }
+        }
+        throw lastFailure;
+    }
+
+    /**
+     * Returns the composer, creating it first if the warm-up could not. A failure to create it
+     * counts as a failed call, so the breaker decides when it is tried again.
+     */
+    private DUUIComposer composerForCall() throws Exception {
+        DUUIComposer current = composer;
+        if (current == null) {
+            synchronized (this) {
+                if (composer == null) {
+                    initialize();
+                }
+                current = composer;
+            }
+        }
+        return current;
+    }
+
+    private DUUIComposer batchComposerForCall() throws Exception {
+        DUUIComposer current = batchComposer;
+        if (current == null) {
+            synchronized (this) {
+                if (batchComposer == null) {
+                    initializeBatchMode();
+                }
+                current = batchComposer;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Runs the component on a batch of documents through a DUUI collection reader, so the
+     * composer sets up its pipeline once per batch instead of once per document.
+     * A failed batch is retried for the documents without a result; when the attempts are
+     * used up, those documents are processed one by one so a single bad document cannot
+     * fail the whole batch.
+     *
+     * @param batch document CASes, each with a unique DocumentMetaData id
+     * @return the documents that could not be annotated
+     * @throws ComponentUnavailableException if the breaker is open or opened while retrying
+     * @throws InterruptedException if interrupted while backing off
+     */
+    public List<JCas> processBatch(List<JCas> batch) throws ComponentUnavailableException, InterruptedException {
+        awaitWarmUp();
+
+        List<JCas> remaining = new ArrayList<>(batch);
+        for (int attempt = 1; attempt <= maxAttempts && !remaining.isEmpty(); attempt++) {
+            if (!breaker.allowRequest()) {
+                metrics.increment("component." + name + ".rejected");
+                throw new ComponentUnavailableException(name, breaker.getOpenUntil(), null);
+            }
+
+            for (JCas jCas : remaining) {
+                BatchResultCollector.register(BatchCollectionReader.documentKey(jCas), jCas);
+            }
+            long start = System.nanoTime();
+            try {
+                // One batch per component at a time; the composer parallelizes within the batch
+                synchronized (batchLock) {
+                    batchComposerForCall().run(new DUUIAsynchronousProcessor(new BatchCollectionReader(remaining)), name);
+                }
+                metrics.recordSince("component." + name + ".batch", start);
+                breaker.recordSuccess();
+            } catch (InterruptedException e) {
+                breaker.abortProbe();
+                Thread.currentThread().interrupt();
+                remaining.forEach(jCas -> BatchResultCollector.unregister(BatchCollectionReader.documentKey(jCas)));
+                throw e;
+            } catch (Exception e) {
+                metrics.recordSince("component." + name + ".batch.failed", start);
+                breaker.recordFailure();
+                logger.warn("Component {} failed on a batch of {} (attempt {}/{}): {}",
+                        name, remaining.size(), attempt, maxAttempts, e.getMessage());
+            }
+
+            // Keep the documents that did not get a result
+            List<JCas> missing = new ArrayList<>();
+            for (JCas jCas : remaining) {
+                if (BatchResultCollector.unregister(BatchCollectionReader.documentKey(jCas))) {
+                    missing.add(jCas);
+                }
+            }
+            remaining = missing;
+
+            if (!remaining.isEmpty()) {
+                if (breaker.isOpen()) {
+                    throw new ComponentUnavailableException(name, breaker.getOpenUntil(), null);
+                }
+                if (attempt < maxAttempts) {
+                    backoff.pause(attempt);
+                }
+            }
+        }
+
+        // Isolate the documents the batch could not handle
+        List<JCas> failed = new ArrayList<>();
+        for (JCas jCas : remaining) {
+            try {
+                process(jCas);
+            } catch (ComponentUnavailableException e) {
+                throw e;
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                failed.add(jCas);
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * Checks the component with a single call on a test document. A failing component has its
+     * breaker opened, so processing can start and the component is probed again later.
+     *
+     * @param testCas a small test document
+     * @return true if the component answered
+     */
+    public boolean checkHealth(JCas testCas) {
+        try {
+            run(testCas, 1);
+            logger.info("Remote component {} is available", name);
+            return true;
+        } catch (Exception e) {
+            logger.warn("Remote component {} is not available: {}", name, e.getMessage());
+            breaker.trip();
+            return false;
+        }
+    }
+
+    /**
+     * Shuts the composers down and releases their worker threads. A later call creates them again.
+     */
+    public synchronized void shutdown() {
+        for (DUUIComposer current : new DUUIComposer[]{composer, batchComposer}) {
+            if (current == null) {
+                continue;
+            }
+            try {
+                current.shutdown();
+            } catch (Exception e) {
+                logger.warn("Failed to shut down component {}: {}", name, e.getMessage());
+            }
+        }
+        composer = null;
+        batchComposer = null;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public CircuitBreaker getBreaker() {
+        return breaker;
+    }
+}
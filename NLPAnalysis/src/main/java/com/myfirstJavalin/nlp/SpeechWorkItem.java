@@ -0,0 +1,81 @@
+package com.myfirstJavalin.nlp;
+
+import org.apache.uima.jcas.JCas;
+import org.bson.Document;
+
+/**
+ * A single speech travelling through the {@link StagedPipeline} of the {@link NLPProcessor}.
+ * Each stage fills in the part it is responsible for and clears what is no longer needed,
+ * so large CAS objects are released as early as possible.
+ */
+public class SpeechWorkItem {
+    private final String docId;
+    private Document speechDoc;
+    private JCas jCas;
+    private Document annotations;
+    private String contentHash;
+    private boolean cacheHit;
+
+    /**
+     * Creates a work item for a speech document loaded from MongoDB.
+     *
+     * @param speechDoc the speech document
+     */
+    public SpeechWorkItem(Document speechDoc) {
+        this.docId = speechDoc.get("_id").toString();
+        this.speechDoc = speechDoc;
+    }
+
+    public String getDocId() {
+        return docId;
+    }
+
+    public Document getSpeechDoc() {
+        return speechDoc;
+    }
+
+    public void setSpeechDoc(Document speechDoc) {
+        this.speechDoc = speechDoc;
+    }
+
+    public JCas getJCas() {
+        return jCas;
+    }
+
+    public void setJCas(JCas jCas) {
+        this.jCas = jCas;
+    }
+
+    public Document getAnnotations() {
+        return annotations;
+    }
+
+    public void setAnnotations(Document annotations) {
+        this.annotations = annotations;
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    /**
+     * @return true if the annotations were taken from the annotation cache, so the
+     *         annotate, serialize and extract stages have nothing to do
+     */
+    public boolean isCacheHit() {
+        return cacheHit;
+    }
+
+    public void setCacheHit(boolean cacheHit) {
+        this.cacheHit = cacheHit;
+    }
+
+    @Override
+    public String toString() {
+        return docId;
+    }
+}
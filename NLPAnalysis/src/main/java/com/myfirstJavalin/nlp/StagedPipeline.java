@@ -0,0 +1,334 @@
+package com.myfirstJavalin.nlp;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * Producer/consumer pipeline made of independent stages connected by bounded queues.
+ * Every stage runs on its own threads, so slow stages (remote NLP calls) overlap with
+ * fast ones (Mongo reads, disk writes). A full queue blocks the stage in front of it,
+ * which keeps the number of items held in memory bounded.
+ *
+ * @param <T> the work item passed from stage to stage
+ */
+public class StagedPipeline<T> {
+    private static final Logger logger = LoggerFactory.getLogger(StagedPipeline.class);
+    private static final Object END = new Object();
+
+    /**
+     * Work done by a single stage.
+     * Returning {@code null} drops the item, e.g. when the stage already handled a failure.
+     */
+    @FunctionalInterface
+    public interface StageFunction<T> {
+        T apply(T item) throws Exception;
+    }
+
+    /**
+     * Work done by a batch stage on several items at once.
+     * Returns the items to pass on; items left out are dropped.
+     */
+    @FunctionalInterface
+    public interface BatchFunction<T> {
+        List<T> apply(List<T> items) throws Exception;
+    }
+
+    private final String name;
+    private final int queueCapacity;
+    private final List<Stage<T>> stages = new ArrayList<>();
+    private final List<Thread> threads = new ArrayList<>();
+    private final AtomicLong completed = new AtomicLong(0);
+    private BiConsumer<T, Exception> errorHandler = (item, e) -> logger.error("Stage failed for {}", item, e);
+    private BlockingQueue<Object> sourceQueue;
+    private boolean started = false;
+
+    /**
+     * Creates an empty pipeline.
+     *
+     * @param name name used for thread names and log messages
+     * @param queueCapacity capacity of every queue between two stages
+     */
+    public StagedPipeline(String name, int queueCapacity) {
+        this.name = name;
+        this.queueCapacity = Math.max(1, queueCapacity);
+    }
+
+    public StagedPipeline<T> addStage(String stageName, int threadCount, StageFunction<T> function) {
+        return addStage(stageName, threadCount, function, null);
+    }
+
+    /**
+     * Appends a stage to the pipeline.
+     *
+     * @param stageName name of the stage
+     * @param threadCount number of threads working on this stage
+     * @param function work done per item
+     * @param onComplete called once after the last item has passed the stage, may be null
+     * @return this pipeline
+     */
+    public StagedPipeline<T> addStage(String stageName, int threadCount, StageFunction<T> function, Runnable onComplete) {
+        if (started) {
+            throw new IllegalStateException("Cannot add stages to a running pipeline");
+        }
+        stages.add(new Stage<>(stageName, Math.max(1, threadCount), function, null, 1, 0, onComplete));
+        return this;
+    }
+
+    /**
+     * Appends a stage that works on batches. A thread takes the next item and then collects
+     * more until the batch is full or no further item arrives within the linger time.
+     *
+     * @param stageName name of the stage
+     * @param threadCount number of threads working on this stage
+     * @param batchSize maximum number of items per batch
+     * @param lingerMillis how long to wait for more items before running a partial batch
+     * @param function work done per batch
+     * @return this pipeline
+     */
+    public StagedPipeline<T> addBatchStage(String stageName, int threadCount, int batchSize, long lingerMillis,
+                                           BatchFunction<T> function) {
+        if (started) {
+            throw new IllegalStateException("Cannot add stages to a running pipeline");
+        }
+        stages.add(new Stage<>(stageName, Math.max(1, threadCount), null, function,
+                Math.max(1, batchSize), Math.max(0, lingerMillis), null));
+        return this;
+    }
+
+    /**
+     * Sets the handler invoked when a stage throws for an item.
+     *
+     * @param errorHandler receives the failed item and the exception
+     * @return this pipeline
+     */
+    public StagedPipeline<T> onError(BiConsumer<T, Exception> errorHandler) {
+        this.errorHandler = errorHandler;
+        return this;
+    }
+
+    /**
+     * Starts all stage threads.
+     */
+    public void start() {
+        if (stages.isEmpty()) {
+            throw new IllegalStateException("Pipeline " + name + " has no stages");
+        }
+        started = true;
+
+        List<BlockingQueue<Object>> queues = new ArrayList<>();
+        for (int i = 0; i < stages.size(); i++) {
+            queues.add(new ArrayBlockingQueue<>(queueCapacity));
+        }
+        sourceQueue = queues.get(0);
+
+        for (int i = 0; i < stages.size(); i++) {
+            Stage<T> stage = stages.get(i);
+            BlockingQueue<Object> input = queues.get(i);
+            BlockingQueue<Object> output = i + 1 < stages.size() ? queues.get(i + 1) : null;
+            int nextThreads = i + 1 < stages.size() ? stages.get(i + 1).threadCount : 0;
+            AtomicInteger running = new AtomicInteger(stage.threadCount);
+
+            for (int t = 1; t <= stage.threadCount; t++) {
+                Thread thread = new Thread(() -> runStage(stage, input, output, nextThreads, running),
+                        name + "-" + stage.name + "-" + t);
+                thread.setDaemon(true);
+                threads.add(thread);
+                thread.start();
+            }
+        }
+        logger.info("Pipeline {} started with stages {} (queue capacity {})", name, stages, queueCapacity);
+    }
+
+    /**
+     * Hands an item to the first stage, blocking while its queue is full.
+     *
+     * @param item the work item
+     * @throws InterruptedException if interrupted while waiting for queue space
+     */
+    public void submit(T item) throws InterruptedException {
+        if (!started) {
+            throw new IllegalStateException("Pipeline " + name + " has not been started");
+        }
+        sourceQueue.put(item);
+    }
+
+    /**
+     * Hands an item to the first stage only if its queue has room for it and {@code reserve} more items,
+     * so low priority work never holds back the regular feed.
+     *
+     * @param item the work item
+     * @param reserve queue slots left free for regular items
+     * @return true if the item was accepted
+     */
+    public boolean offer(T item, int reserve) {
+        if (!started) {
+            throw new IllegalStateException("Pipeline " + name + " has not been started");
+        }
+        return sourceQueue.remainingCapacity() > reserve && sourceQueue.offer(item);
+    }
+
+    /**
+     * Signals the end of input and waits until every stage has drained.
+     *
+     * @return number of items that left the last stage
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public long finish() throws InterruptedException {
+        for (int i = 0; i < stages.get(0).threadCount; i++) {
+            sourceQueue.put(END);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        logger.info("Pipeline {} finished, {} items completed", name, completed.get());
+        return completed.get();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void runStage(Stage<T> stage, BlockingQueue<Object> input, BlockingQueue<Object> output,
+                          int nextThreads, AtomicInteger running) {
+        try {
+            while (stage.batchFunction != null) {
+                if (!runBatch(stage, input, output)) {
+                    return;
+                }
+            }
+
+            while (true) {
+                Object next = input.take();
+                if (next == END) {
+                    break;
+                }
+
+                T item = (T) next;
+                T result;
+                try {
+                    result = stage.function.apply(item);
+                } catch (Exception e) {
+                    errorHandler.accept(item, e);
+                    continue;
+                }
+
+                if (result == null) {
+                    continue;
+                }
+                if (output != null) {
+                    output.put(result);
+                } else {
+                    completed.incrementAndGet();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Stage {} of pipeline {} interrupted", stage.name, name);
+        } finally {
+            // The last thread of a stage runs the completion hook and passes the end marker on
+            if (running.decrementAndGet() == 0) {
+                if (stage.onComplete != null) {
+                    try {
+                        stage.onComplete.run();
+                    } catch (Exception e) {
+                        logger.error("Completion hook of stage {} failed", stage.name, e);
+                    }
+                }
+                if (output != null) {
+                    for (int i = 0; i < nextThreads; i++) {
+                        try {
+                            output.put(END);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Collects and processes one batch.
+     *
+     * @return false once the end marker was reached
+     */
+    @SuppressWarnings("unchecked")
+    private boolean runBatch(Stage<T> stage, BlockingQueue<Object> input, BlockingQueue<Object> output)
+            throws InterruptedException {
+        List<T> batch = new ArrayList<>(stage.batchSize);
+        boolean more = true;
+
+        Object next = input.take();
+        if (next == END) {
+            return false;
+        }
+        batch.add((T) next);
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(stage.lingerMillis);
+        while (batch.size() < stage.batchSize) {
+            next = input.poll(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            if (next == END) {
+                more = false;
+                break;
+            }
+            batch.add((T) next);
+        }
+
+        List<T> results;
+        try {
+            results = stage.batchFunction.apply(batch);
+        } catch (Exception e) {
+            for (T item : batch) {
+                errorHandler.accept(item, e);
+            }
+            return more;
+        }
+
+        for (T result : results) {
+            if (result == null) {
+                continue;
+            }
+            if (output != null) {
+                output.put(result);
+            } else {
+                completed.incrementAndGet();
+            }
+        }
+        return more;
+    }
+
+    private static final class Stage<T> {
+        private final String name;
+        private final int threadCount;
+        private final StageFunction<T> function;
+        private final BatchFunction<T> batchFunction;
+        private final int batchSize;
+        private final long lingerMillis;
+        private final Runnable onComplete;
+
+        private Stage(String name, int threadCount, StageFunction<T> function, BatchFunction<T> batchFunction,
+                      int batchSize, long lingerMillis, Runnable onComplete) {
+            this.name = name;
+            this.threadCount = threadCount;
+            this.function = function;
+            this.batchFunction = batchFunction;
+            this.batchSize = batchSize;
+            this.lingerMillis = lingerMillis;
+            this.onComplete = onComplete;
+        }
+
+        @Override
+        public String toString() {
+            return batchFunction != null ? name + "x" + threadCount + "[" + batchSize + "]" : name + "x" + threadCount;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.myfirstJavalin.nlp;
+
+import java.text.BreakIterator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Splits a long text into windows of bounded size for separate annotation.
+ * Windows end at paragraph breaks where possible, otherwise at sentence boundaries,
+ * and only when a single sentence is longer than the limit at the last whitespace,
+ * so the remote components see complete sentences in almost every case.
+ */
+public class TextWindowSplitter {
+    private final int maxChars;
+    private final Locale locale;
+
+    /**
+     * @param maxChars maximum length of a window
+     * @param locale language used to find sentence boundaries
+     */
+    public TextWindowSplitter(int maxChars, Locale locale) {
+        if (maxChars < 1) {
+            throw new IllegalArgumentException("Window size must be at least 1: " + maxChars);
+        }
+        this.maxChars = maxChars;
+        this.locale = locale;
+    }
+
+    /**
+     * Splits a text. The windows cover the text without gaps or overlap.
+     *
+     * @param text the text
+     * @return windows in text order; a single window if the text is short enough
+     */
+    public List<Window> split(String text) {
+        List<Window> windows = new ArrayList<>();
+        if (text.length() <= maxChars) {
+            windows.add(new Window(0, text.length()));
+            return windows;
+        }
+
+        BreakIterator sentences = BreakIterator.getSentenceInstance(locale);
+        sentences.setText(text);
+
+        int begin = 0;
+        while (text.length() - begin > maxChars) {
+            int limit = begin + maxChars;
+            int end = lastParagraphBreak(text, begin, limit);
+            if (end <= begin) {
+                end = sentences.preceding(limit + 1);
+            }
+            if (end <= begin) {
+                end = lastWhitespace(text, begin, limit);
+            }
+            if (end <= begin) {
+                end = limit;
+            }
+            windows.add(new Window(begin, end));
+            begin = end;
+        }
+        windows.add(new Window(begin, text.length()));
+        return windows;
+    }
+
+    /**
+     * Finds the end of the last paragraph break within the limit, but only if it keeps
+     * the window at least half full; otherwise sentence boundaries give better windows.
+     */
+    private static int lastParagraphBreak(String text, int begin, int limit) {
+        int index = text.lastIndexOf("\n\n", limit - 2);
+        if (index < begin + (limit - begin) / 2) {
+            return -1;
+        }
+        int end = index + 2;
+        while (end < limit && text.charAt(end) == '\n') {
+            end++;
+        }
+        return end;
+    }
+
+    private static int lastWhitespace(String text, int begin, int limit) {
+        for (int i = limit; i > begin; i--) {
+            if (Character.isWhitespace(text.charAt(i - 1))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * A character range of the split text.
+     */
+    public static class Window {
+        private final int begin;
+        private final int end;
+
+        public Window(int begin, int end) {
+            this.begin = begin;
+            this.end = end;
+        }
+
+        public int getBegin() {
+            return begin;
+        }
+
+        public int getEnd() {
+            return end;
+        }
+
+        public int length() {
+            return end - begin;
+        }
+
+        @Override
+        public String toString() {
+            return begin + "-" + end;
+        }
+    }
+}
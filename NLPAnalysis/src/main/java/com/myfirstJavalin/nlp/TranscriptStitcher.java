@@ -0,0 +1,136 @@
+package com.myfirstJavalin.nlp;
+
+import com.myfirstJavalin.helper.AdtsWindowSplitter;
+import org.bson.Document;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Merges the transcripts of overlapping audio windows into one transcript on the timeline of the
+ * whole recording. Segment and word timestamps are shifted by the window start. Each overlap is
+ * cut in the middle: a word belongs to the window whose half of the overlap contains its midpoint,
+ * so every word is kept exactly once and the words near a window edge, which the transcriber sees
+ * with the least context, are taken from the other window.
+ */
+public class TranscriptStitcher {
+
+    private TranscriptStitcher() {
+    }
+
+    /**
+     * @param windows the audio windows in time order
+     * @param transcripts the transcript of every window, as returned by the timestamp parsers
+     *                    ("text", "segments_with_timeStamps" with optional "words")
+     * @return the merged transcript with renumbered segments
+     */
+    public static Document stitch(List<AdtsWindowSplitter.Window> windows, List<Document> transcripts) {
+        if (windows.size() != transcripts.size()) {
+            throw new IllegalArgumentException(windows.size() + " windows but " + transcripts.size() + " transcripts");
+        }
+
+        List<Document> segments = new ArrayList<>();
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < windows.size(); i++) {
+            AdtsWindowSplitter.Window window = windows.get(i);
+            double from = i == 0 ? Double.NEGATIVE_INFINITY
+                    : (window.getStartSeconds() + windows.get(i - 1).getEndSeconds()) / 2;
+            double to = i == windows.size() - 1 ? Double.POSITIVE_INFINITY
+                    : (windows.get(i + 1).getStartSeconds() + window.getEndSeconds()) / 2;
+
+            for (Document segment : transcripts.get(i).getList("segments_with_timeStamps", Document.class, List.of())) {
+                Document shifted = keepRange(segment, window.getStartSeconds(), from, to);
+                if (shifted == null) {
+                    continue;
+                }
+                shifted.put("id", segments.size());
+                segments.add(shifted);
+                String segmentText = shifted.getString("text");
+                if (segmentText != null && !segmentText.isBlank()) {
+                    text.append(text.length() > 0 ? " " : "").append(segmentText.trim());
+                }
+            }
+        }
+
+        Document first = transcripts.isEmpty() ? new Document() : transcripts.get(0);
+        return new Document("text", text.toString())
+                .append("segments_with_timeStamps", segments)
+                .append("language", first.getString("language") != null ? first.getString("language") : "unknown")
+                .append("windows", windows.size());
+    }
+
+    /**
+     * Shifts a segment onto the global timeline and keeps only the part within [from, to).
+     *
+     * @return the shifted segment, or null if nothing of it is in the range
+     */
+    private static Document keepRange(Document segment, double offset, double from, double to) {
+        double start = shift(segment.get("start"), offset);
+        double end = shift(segment.get("end"), offset);
+        double segmentMiddle = Double.isNaN(start) || Double.isNaN(end) ? start : (start + end) / 2;
+        List<Document> words = segment.getList("words", Document.class);
+
+        if (words == null || words.isEmpty()) {
+            if (!Double.isNaN(segmentMiddle) && (segmentMiddle < from || segmentMiddle >= to)) {
+                return null;
+            }
+            return new Document(segment).append("start", start).append("end", end);
+        }
+
+        List<Document> kept = new ArrayList<>();
+        for (Document word : words) {
+            double wordStart = shift(word.get("start"), offset);
+            double wordEnd = shift(word.get("end"), offset);
+            // Words without timing (e.g. numbers) follow their segment
+            double middle = Double.isNaN(wordStart) || Double.isNaN(wordEnd) ? segmentMiddle : (wordStart + wordEnd) / 2;
+            if (Double.isNaN(middle) || (middle >= from && middle < to)) {
+                kept.add(new Document(word).append("start", wordStart).append("end", wordEnd));
+            }
+        }
+        if (kept.isEmpty()) {
+            return null;
+        }
+
+        Document shifted = new Document(segment).append("start", start).append("end", end).append("words", kept);
+        if (kept.size() < words.size()) {
+            StringBuilder keptText = new StringBuilder();
+            for (Document word : kept) {
+                String token = word.getString("word");
+                if (token != null && !token.isBlank()) {
+                    keptText.append(keptText.length() > 0 ? " " : "").append(token.trim());
+                }
+            }
+            shifted.append("text", keptText.toString())
+                    .append("start", firstTime(kept, "start", start))
+                    .append("end", lastTime(kept, "end", end));
+        }
+        return shifted;
+    }
+
+    private static double shift(Object seconds, double offset) {
+        if (!(seconds instanceof Number) || Double.isNaN(((Number) seconds).doubleValue())) {
+            return Double.NaN;
+        }
+        return Math.round((((Number) seconds).doubleValue() + offset) * 1000.0) / 1000.0;
+    }
+
+    private static double firstTime(List<Document> words, String field, double fallback) {
+        for (Document word : words) {
+            double time = word.getDouble(field);
+            if (!Double.isNaN(time)) {
+                return time;
+            }
+        }
+        return fallback;
+    }
+
+    private static double lastTime(List<Document> words, String field, double fallback) {
+        for (int i = words.size() - 1; i >= 0; i--) {
+            double time = words.get(i).getDouble(field);
+            if (!Double.isNaN(time)) {
+                return time;
+            }
+        }
+        return fallback;
+    }
+}
@@ -0,0 +1,260 @@
+package com.myfirstJavalin.nlp;
+
+import com.myfirstJavalin.config.AppConfig;
+import org.bson.Document;
+import org.bson.json.JsonWriterSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Processes a set of videos with a bounded number of concurrent jobs.
+ * A job is admitted when a slot is free and its estimated heap fits into the memory budget,
+ * so a few large recordings cannot exhaust the heap while many small ones still run side by side.
+ * Failed jobs are retried with backoff on their own; the other jobs and the shared composers are
+ * not affected. Progress is logged and written to a JSON report after every finished job.
+ */
+public class VideoJobScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(VideoJobScheduler.class);
+    private static final long MB = 1024L * 1024;
+
+    /**
+     * Processes one video.
+     */
+    @FunctionalInterface
+    public interface VideoTask {
+        /**
+         * @param videoPath the video
+         * @return the speech id the video was stored under
+         * @throws Exception if processing failed
+         */
+        String process(Path videoPath) throws Exception;
+    }
+
+    /**
+     * Estimates the heap a video needs while it is processed.
+     */
+    @FunctionalInterface
+    public interface MemoryEstimate {
+        long bytes(Path videoPath) throws IOException;
+    }
+
+    private final VideoTask task;
+    private final MemoryEstimate memoryEstimate;
+    private final int concurrency;
+    private final int maxAttempts;
+    private final Backoff backoff;
+    private final int memoryBudgetMB;
+    private final Path reportFile;
+
+    /**
+     * @param task processes one video
+     * @param memoryEstimate heap estimate of a video
+     * @param config reads the video.jobs.* settings
+     */
+    public VideoJobScheduler(VideoTask task, MemoryEstimate memoryEstimate, AppConfig config) {
+        this.task = task;
+        this.memoryEstimate = memoryEstimate;
+        this.concurrency = Math.max(1, Integer.parseInt(config.getProperty("video.jobs.concurrency", "2").trim()));
+        this.maxAttempts = Math.max(1, Integer.parseInt(config.getProperty("video.jobs.maxAttempts", "3").trim()));
+        this.backoff = new Backoff(Long.parseLong(config.getProperty("video.jobs.retryBaseSeconds", "5").trim()) * 1000L,
+                Long.parseLong(config.getProperty("video.jobs.retryMaxSeconds", "120").trim()) * 1000L);
+        // Share of the heap available to jobs, the rest is left to the JVM and the DUUI clients
+        int budget = Integer.parseInt(config.getProperty("video.jobs.memoryBudgetMB", "0").trim());
+        this.memoryBudgetMB = budget > 0 ? budget : (int) Math.max(1, Runtime.getRuntime().maxMemory() * 6 / 10 / MB);
+        String report = config.getProperty("video.jobs.report", "video-report.json").trim();
+        this.reportFile = report.isEmpty() ? null : Paths.get(report);
+    }
+
+    /**
+     * Processes all videos and waits until every job has finished.
+     * The largest videos are started first, so the long jobs do not end up at the tail of the run.
+     *
+     * @param videos the videos
+     * @return the summary report
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public Document run(List<Path> videos) throws InterruptedException {
+        List<Job> jobs = new ArrayList<>();
+        for (Path video : videos) {
+            jobs.add(new Job(video));
+        }
+        jobs.sort(Comparator.comparingLong((Job job) -> job.bytes).reversed());
+
+        long start = System.currentTimeMillis();
+        logger.info("Processing {} videos with {} concurrent jobs and a memory budget of {} MB",
+                jobs.size(), concurrency, memoryBudgetMB);
+
+        Semaphore slots = new Semaphore(concurrency);
+        Semaphore memory = new Semaphore(memoryBudgetMB, true);
+        AtomicInteger finished = new AtomicInteger(0);
+        AtomicInteger threadNumber = new AtomicInteger(0);
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "video-job-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            for (Job job : jobs) {
+                // A video larger than the budget runs alone
+                int permits = (int) Math.min(memoryBudgetMB, Math.max(1, (job.estimatedBytes + MB - 1) / MB));
+                slots.acquire();
+                memory.acquire(permits);
+                executor.execute(() -> {
+                    try {
+                        runJob(job);
+                    } finally {
+                        memory.release(permits);
+                        slots.release();
+                        logProgress(jobs, finished.incrementAndGet(), start);
+                    }
+                });
+            }
+            executor.shutdown();
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                logger.debug("Waiting for {} running video jobs", concurrency - slots.availablePermits());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Document report = report(jobs, start);
+        writeReport(report);
+        logger.info("Video processing complete: {}/{} videos succeeded in {} minutes",
+                report.getInteger("succeeded"), jobs.size(), (System.currentTimeMillis() - start) / 60000);
+        return report;
+    }
+
+    private void runJob(Job job) {
+        job.startedAt = System.currentTimeMillis();
+        job.status = "running";
+        for (job.attempts = 1; job.attempts <= maxAttempts; job.attempts++) {
+            try {
+                job.speechId = task.process(job.video);
+                job.status = "succeeded";
+                job.error = null;
+                break;
+            } catch (Exception e) {
+                job.error = e.getClass().getSimpleName() + ": " + e.getMessage();
+                logger.error("Processing failed for {} (attempt {}/{}): {}", job.video.getFileName(), job.attempts, maxAttempts, job.error);
+                if (job.attempts == maxAttempts) {
+                    job.status = "failed";
+                    break;
+                }
+                try {
+                    backoff.pause(job.attempts);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    job.status = "failed";
+                    break;
+                }
+            }
+        }
+        job.durationMillis = System.currentTimeMillis() - job.startedAt;
+        if ("succeeded".equals(job.status)) {
+            logger.info("Processed {} as {} in {} s", job.video.getFileName(), job.speechId, job.durationMillis / 1000);
+        }
+    }
+
+    private synchronized void logProgress(List<Job> jobs, int finished, long start) {
+        long elapsed = System.currentTimeMillis() - start;
+        long failed = jobs.stream().filter(job -> "failed".equals(job.status)).count();
+        long remainingMillis = finished > 0 ? elapsed / finished * (jobs.size() - finished) : 0;
+        logger.info("Videos: {}/{} finished, {} failed, about {} minutes remaining",
+                finished, jobs.size(), failed, remainingMillis / 60000);
+        writeReport(report(jobs, start));
+    }
+
+    private Document report(List<Job> jobs, long start) {
+        List<Document> entries = new ArrayList<>();
+        int succeeded = 0;
+        int failed = 0;
+        for (Job job : jobs) {
+            if ("succeeded".equals(job.status)) {
+                succeeded++;
+            } else if ("failed".equals(job.status)) {
+                failed++;
+            }
+            entries.add(job.toDocument());
+        }
+        return new Document("startedAt", new Date(start))
+                .append("elapsedMs", System.currentTimeMillis() - start)
+                .append("total", jobs.size())
+                .append("succeeded", succeeded)
+                .append("failed", failed)
+                .append("pending", jobs.size() - succeeded - failed)
+                .append("concurrency", concurrency)
+                .append("memoryBudgetMB", memoryBudgetMB)
+                .append("jobs", entries);
+    }
+
+    private synchronized void writeReport(Document report) {
+        if (reportFile == null) {
+            return;
+        }
+        try {
+            if (reportFile.getParent() != null) {
+                Files.createDirectories(reportFile.getParent());
+            }
+            Files.writeString(reportFile, report.toJson(JsonWriterSettings.builder().indent(true).build()),
+                    StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            logger.error("Failed to write the video report to {}: {}", reportFile, e.getMessage());
+        }
+    }
+
+    /**
+     * State of one video; written by its job thread and read for the report.
+     */
+    private class Job {
+        private final Path video;
+        private final long bytes;
+        private final long estimatedBytes;
+        private volatile String status = "pending";
+        private volatile String speechId;
+        private volatile String error;
+        private volatile int attempts;
+        private volatile long startedAt;
+        private volatile long durationMillis;
+
+        Job(Path video) {
+            this.video = video;
+            long size = 0;
+            long estimate = 0;
+            try {
+                size = Files.size(video);
+                estimate = memoryEstimate.bytes(video);
+            } catch (IOException e) {
+                logger.warn("Cannot read the size of {}: {}", video, e.getMessage());
+            }
+            this.bytes = size;
+            this.estimatedBytes = estimate;
+        }
+
+        Document toDocument() {
+            return new Document("file", video.getFileName().toString())
+                    .append("bytes", bytes)
+                    .append("estimatedHeapMB", estimatedBytes / MB)
+                    .append("status", status)
+                    .append("speechId", speechId)
+                    .append("attempts", Math.min(attempts, maxAttempts))
+                    .append("durationMs", durationMillis)
+                    .append("error", error);
+        }
+    }
+}
@@ -5,15 +5,22 @@ import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.gridfs.GridFSBucket;
 import com.mongodb.client.gridfs.GridFSBuckets;
+import com.mongodb.client.gridfs.model.GridFSFile;
+import com.mongodb.client.gridfs.model.GridFSUploadOptions;
 import com.mongodb.client.model.UpdateOptions;
 import com.mongodb.client.result.UpdateResult;
 import com.myfirstJavalin.config.AppConfig;
 import com.myfirstJavalin.database.MongoDBHandler;
+import com.myfirstJavalin.database.VideoManifest;
+import com.myfirstJavalin.helper.AdtsWindowSplitter;
+import com.myfirstJavalin.helper.Mp4AudioExtractor;
 import de.tudarmstadt.ukp.dkpro.core.api.metadata.type.DocumentMetaData;
-import java.io.ByteArrayInputStream;
+import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.LinkOption;
@@ -22,6 +29,13 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Base64;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -55,8 +69,20 @@ public class VideoNLPProcessor {
     private static final String TRANSCRIPT_VIEW = "transcript";
     private static final int SPEECH_ID_LENGTH = 12;
     private static final int WORKERS = 1;
-    private DUUIComposer composer;
+    private static final int GRIDFS_CHUNK_SIZE = 1024 * 1024;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final String VIDEO_BUCKET = "video1";
+    private static final String TRANSCRIPT_COLLECTION = "speechTranscripts";
     private final MongoDBHandler dbConnection;
+    private final boolean audioOnly;
+    // Finished videos by speech id and content hash; null if every video is transcribed
+    private final VideoManifest manifest;
+    // Every WhisperX call takes a composer of the pool, which bounds the concurrent calls
+    private final int parallelism;
+    private BlockingQueue<DUUIComposer> composers;
+    // Long recordings are transcribed in overlapping windows
+    private final AdtsWindowSplitter windowSplitter;
+    private final ExecutorService windowExecutor;
 
     /**
      * Class to extract transcriptions with timestamps from video speech and store in MongoDB
@@ -65,13 +91,37 @@ public class VideoNLPProcessor {
      */
     public VideoNLPProcessor(MongoDBHandler dbConnection) throws Exception {
         this.dbConnection = dbConnection;
+        AppConfig config = new AppConfig();
+        this.audioOnly = Boolean.parseBoolean(config.getProperty("video.audioOnly", "true").trim());
+        this.manifest = Boolean.parseBoolean(config.getProperty("video.manifest.enabled", "true").trim())
+                ? new VideoManifest(dbConnection.getMongoDatabase(), VIDEO_BUCKET,
+                        Long.parseLong(config.getProperty("video.manifest.reservationMinutes", "180").trim()) * 60000L)
+                : null;
+        double windowSeconds = Double.parseDouble(config.getProperty("video.window.seconds", "0").trim());
+        this.windowSplitter = audioOnly && windowSeconds > 0
+                ? new AdtsWindowSplitter(windowSeconds, Double.parseDouble(config.getProperty("video.window.overlapSeconds", "10").trim()))
+                : null;
+        this.parallelism = Math.max(1, Integer.parseInt(config.getProperty("video.transcription.parallelism", "4").trim()));
+        AtomicInteger threadNumber = new AtomicInteger(0);
+        this.windowExecutor = windowSplitter == null ? null : Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "video-window-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
         this.initializeComposer();
         this.initializePipeline();
     }
 
 
     private void initializeComposer() throws IOException, UIMAException, SAXException, URISyntaxException {
-        this.composer = (new DUUIComposer())
+        this.composers = new ArrayBlockingQueue<>(parallelism);
+        for (int i = 0; i < parallelism; i++) {
+            this.composers.add(createComposer());
+        }
+    }
+
+    private static DUUIComposer createComposer() throws IOException, UIMAException, SAXException, URISyntaxException {
+        return (new DUUIComposer())
                 .withSkipVerification(true)
                 .withLuaContext((new DUUILuaContext())
                         .withJsonLibrary()).withWorkers(1)
@@ -82,15 +132,17 @@ public class VideoNLPProcessor {
 
     /**
      * Initializes the pipeline that processes the speech with WhisperX
-     * @throws URISyntaxException syntax exception
-     * @throws IOException input output exception
-     * @throws CompressorException compressor exception
-     * @throws InvalidXMLException InvalidXML exception
-     * @throws SAXException SAX exception
+     * @throws Exception if a composer cannot be created
      */
-    private void initializePipeline() throws URISyntaxException, IOException, CompressorException, InvalidXMLException, SAXException {
-        this.composer.resetPipeline();
-        this.composer.add((new DUUIRemoteDriver.Component("http://whisperx.lehre.texttechnologylab.org"))
+    private void initializePipeline() throws Exception {
+        for (DUUIComposer composer : this.composers) {
+            composer.resetPipeline();
+            addWhisperX(composer);
+        }
+    }
+
+    private static void addWhisperX(DUUIComposer composer) throws URISyntaxException, IOException, CompressorException, InvalidXMLException, SAXException {
+        composer.add((new DUUIRemoteDriver.Component("http://whisperx.lehre.texttechnologylab.org"))
                 .withScale(1)
                 .withSourceView("video")
                 .withTargetView("transcript")
@@ -108,21 +160,286 @@ public class VideoNLPProcessor {
         String filename = videoPath.getFileName().toString();
         String baseFilename = FilenameUtils.removeExtension(filename);
         String speechId = this.generateSpeechId(baseFilename);
+
+        // Videos finished in an earlier run and copies of finished videos are not transcribed again
+        String contentHash = null;
+        if (manifest != null) {
+            long videoBytes = Files.size(videoPath);
+            if (manifest.isProcessed(speechId, videoBytes)) {
+                logger.info("Skipping {}: already transcribed as {}", filename, speechId);
+                return speechId;
+            }
+            contentHash = VideoManifest.sha256(videoPath);
+            if (this.reuseTranscript(contentHash, speechId, videoBytes)) {
+                return speechId;
+            }
+            // Only one job transcribes a content; a concurrent job with the same video waits and reuses its transcript
+            while (!manifest.reserve(contentHash, speechId)) {
+                logger.info("Waiting for {}: a video with the same content is being transcribed", filename);
+                manifest.awaitResult(contentHash);
+                if (this.reuseTranscript(contentHash, speechId, videoBytes)) {
+                    return speechId;
+                }
+            }
+        }
+
+        try {
+            return this.transcribe(videoPath, speechId, contentHash);
+        } catch (Exception e) {
+            if (contentHash != null) {
+                manifest.release(contentHash, speechId);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Transcribes a video and stores the transcript and the video.
+     * @param videoPath the local path of mp4 video
+     * @param speechId speech id
+     * @param contentHash SHA-256 hash of the video, reserved by this job, or null without manifest
+     * @return the speechId used for processing
+     * @throws Exception throws exception
+     */
+    private String transcribe(Path videoPath, String speechId, String contentHash) throws Exception {
+        String filename = videoPath.getFileName().toString();
         JCas mainCas = JCasFactory.createJCas();
 
+        // WhisperX only needs the sound: send the audio track instead of the whole video if possible
+        Path audioPath = null;
+        Mp4AudioExtractor.AudioTrack audioTrack = null;
+        if (audioOnly) {
+            audioPath = Files.createTempFile(speechId, Mp4AudioExtractor.FILE_EXTENSION);
+            audioTrack = Mp4AudioExtractor.extract(videoPath, audioPath);
+            if (audioTrack != null) {
+                logger.info("Extracted {} s of audio from {}: {} of {} bytes", String.format("%.1f", audioTrack.getDurationSeconds()),
+                        filename, audioTrack.getBytes(), Files.size(videoPath));
+            } else {
+                logger.warn("Could not extract the audio track of {}, sending the whole video", filename);
+            }
+        }
+
         String var7;
+        List<AdtsWindowSplitter.Window> windows = List.of();
         try {
-            JCas videoView = this.createVideoView(mainCas, speechId, videoPath);
-            this.composer.run(videoView);
-            this.saveToMongoDB(mainCas, speechId);
+            if (audioTrack != null && windowSplitter != null) {
+                windows = windowSplitter.split(audioPath, audioTrack.getSampleRate(), audioPath.getParent());
+            }
+            if (windows.size() > 1) {
+                Document transcript = this.transcribeWindows(speechId, windows);
+                Document metadata = (new Document())
+                        .append("processing_date", System.currentTimeMillis())
+                        .append("mime_type", "text/plain")
+                        .append("language", "de");
+                this.saveToMongoDB(speechId, videoPath, contentHash, metadata, audioTrack, transcript);
+            } else {
+                JCas videoView = this.createVideoView(mainCas, speechId, audioTrack != null ? audioPath : videoPath);
+                this.runWhisperX(videoView);
+                this.saveToMongoDB(speechId, videoPath, contentHash, this.extractVideoMetadata(mainCas), audioTrack,
+                        this.extractTranscriptWithTimestamps(mainCas, speechId));
+            }
             var7 = speechId;
         } finally {
+            for (AdtsWindowSplitter.Window window : windows) {
+                if (!window.getPath().equals(audioPath)) {
+                    Files.deleteIfExists(window.getPath());
+                }
+            }
             mainCas.release();
+            if (audioPath != null) {
+                Files.deleteIfExists(audioPath);
+            }
         }
 
         return var7;
     }
 
+    /**
+     * Stores the transcript of an already transcribed video content under a speech id without
+     * transcribing it again. The transcript is taken from another speech id with the same content,
+     * or, for a speech transcribed before the manifest existed, found under the speech id itself.
+     * @param contentHash SHA-256 hash of the video
+     * @param speechId speech id of the video
+     * @param bytes size of the video file
+     * @return true if the video needs no transcription
+     */
+    private boolean reuseTranscript(String contentHash, String speechId, long bytes) {
+        MongoCollection<Document> transcripts = this.dbConnection.getMongoDatabase().getCollection(TRANSCRIPT_COLLECTION);
+        Document entry = manifest.findByHash(contentHash);
+        if (VideoManifest.isInProgress(entry)) {
+            return false;
+        }
+        if (entry == null) {
+            // A speech id in the manifest with another content is a changed video
+            if (manifest.contains(speechId)) {
+                return false;
+            }
+            Document existing = transcripts.find(new Document("_id", speechId)).projection(new Document("video_ref", 1)).first();
+            if (existing == null || existing.getString("video_ref") == null) {
+                return false;
+            }
+            manifest.markProcessed(contentHash, speechId, bytes, existing.getString("video_ref"));
+            logger.info("Skipping {}: transcribed before, added to the manifest", speechId);
+            return true;
+        }
+
+        List<String> speechIds = entry.getList("speechIds", String.class, List.of());
+        if (speechIds.contains(speechId)) {
+            manifest.markProcessed(contentHash, speechId, bytes, entry.getString("videoRef"));
+            return true;
+        }
+        for (String sourceId : speechIds) {
+            Document source = transcripts.find(new Document("_id", sourceId)).first();
+            if (source != null) {
+                source.remove("_id");
+                transcripts.updateOne(new Document("_id", speechId),
+                        new Document("$set", source.append("duplicate_of", sourceId)),
+                        new UpdateOptions().upsert(true));
+                manifest.markProcessed(contentHash, speechId, bytes, source.getString("video_ref"));
+                logger.info("Skipping {}: same content as {}, transcript copied", speechId, sourceId);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Transcribes the windows of a long recording concurrently and stitches the results
+     * onto the timeline of the whole recording.
+     * @param speechId speech id
+     * @param windows the audio windows in time order
+     * @return the transcript document, as stored for a single transcription
+     * @throws Exception if a window could not be transcribed
+     */
+    private Document transcribeWindows(String speechId, List<AdtsWindowSplitter.Window> windows) throws Exception {
+        logger.info("Transcribing speech {} in {} windows of up to {} in parallel", speechId, windows.size(), parallelism);
+        long start = System.currentTimeMillis();
+        List<Future<Document>> futures = new ArrayList<>();
+        AtomicBoolean givenUp = new AtomicBoolean(false);
+        for (int i = 0; i < windows.size(); i++) {
+            String windowId = speechId + "#" + i;
+            AdtsWindowSplitter.Window window = windows.get(i);
+            futures.add(windowExecutor.submit(() -> givenUp.get() ? null : this.transcribeWindow(windowId, window)));
+        }
+
+        List<Document> transcripts = new ArrayList<>();
+        try {
+            for (Future<Document> future : futures) {
+                transcripts.add(future.get());
+            }
+        } catch (ExecutionException | InterruptedException e) {
+            // Windows that have not started yet are useless once one has failed; the running ones
+            // still read their window files and hold pooled composers, so they must finish before
+            // the caller deletes the files and a retry submits new windows
+            givenUp.set(true);
+            awaitWindows(futures);
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+                throw e;
+            }
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+
+        Document stitched = TranscriptStitcher.stitch(windows, transcripts);
+        String fullText = stitched.getString("text");
+        logger.info("Transcribed {} windows of speech {} in {} ms", windows.size(), speechId, System.currentTimeMillis() - start);
+        return (new Document())
+                .append("t_Id", "transcript-" + speechId)
+                .append("transcriptText", fullText)
+                .append("sentences", segmentTextIntoSentences(fullText))
+                .append("segments_with_timeStamps", stitched.get("segments_with_timeStamps"))
+                .append("windows", windows.stream()
+                        .map(window -> new Document("start", window.getStartSeconds()).append("end", window.getEndSeconds()))
+                        .collect(Collectors.toList()));
+    }
+
+    /**
+     * Waits until every window of a given-up transcription has ended; windows that had not started
+     * return at once. Their results and failures are of no interest any more. If the wait is
+     * interrupted, the remaining windows are interrupted too.
+     */
+    private void awaitWindows(List<Future<Document>> futures) {
+        for (Future<Document> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                // Failed on its own
+            } catch (InterruptedException e) {
+                futures.forEach(running -> running.cancel(true));
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Transcribes one window with a composer of the pool.
+     * @return the parsed transcript of the window, with timestamps relative to the window start
+     */
+    private Document transcribeWindow(String windowId, AdtsWindowSplitter.Window window) throws Exception {
+        JCas windowCas = JCasFactory.createJCas();
+        try {
+            JCas videoView = this.createVideoView(windowCas, windowId, window.getPath());
+            this.runWhisperX(videoView);
+            JCas transcriptView = windowCas.getView(TRANSCRIPT_VIEW);
+            logger.debug("Transcribed window {} ({})", windowId, window);
+            return this.tryExtractTimestamps(transcriptView.getSofaDataString(), transcriptView.getDocumentText());
+        } finally {
+            windowCas.release();
+        }
+    }
+
+    /**
+     * Runs WhisperX on a view with a composer of the pool. A composer whose call failed is
+     * replaced by a fresh one, so a broken connection does not affect the other jobs.
+     * @param videoView the view holding the Base64 audio or video
+     * @throws Exception if the transcription failed
+     */
+    private void runWhisperX(JCas videoView) throws Exception {
+        DUUIComposer composer = this.composers.take();
+        try {
+            composer.run(videoView);
+        } catch (Exception e) {
+            composer = replaceComposer(composer);
+            throw e;
+        } finally {
+            this.composers.put(composer);
+        }
+    }
+
+    private DUUIComposer replaceComposer(DUUIComposer failed) {
+        try {
+            failed.shutdown();
+        } catch (Exception e) {
+            logger.debug("Failed to shut down composer: {}", e.getMessage());
+        }
+        try {
+            DUUIComposer composer = createComposer();
+            addWhisperX(composer);
+            return composer;
+        } catch (Exception e) {
+            logger.error("Failed to recreate a WhisperX composer, keeping the old one: {}", e.getMessage());
+            return failed;
+        }
+    }
+
+    /**
+     * Estimates the heap a video occupies while it is processed: the Base64 sofa of what is sent
+     * held as a byte buffer and as string (about 2.7 times the sent bytes while encoding), and once
+     * more in the serialized request. With audio extraction the size of the audio track is read from the sample tables;
+     * a video without an extractable track is sent whole and budgeted as such.
+     * @param videoPath the video
+     * @return estimated bytes
+     * @throws IOException if the file cannot be read
+     */
+    long estimateHeapBytes(Path videoPath) throws IOException {
+        long sentBytes = audioOnly ? Mp4AudioExtractor.probeAdtsBytes(videoPath) : -1;
+        if (sentBytes < 0) {
+            sentBytes = Files.size(videoPath);
+        }
+        return 32L * 1024 * 1024 + sentBytes * 4;
+    }
+
     /**
      * Generate a speechId from filename by taking first 12 characters
      * @param filename the filename without extension
@@ -133,7 +450,9 @@ public class VideoNLPProcessor {
     }
 
     /**
-     * it creates video view by converting to bas64video
+     * it creates video view by converting to bas64video.
+     * The file is encoded while it is read, directly into a buffer of the exact Base64 length,
+     * so the raw video bytes are never held in memory as a whole.
      * @param mainCas mainCas
      * @param speechId speech id of the speech
      * @param videoPath the path of the video
@@ -143,19 +462,18 @@ public class VideoNLPProcessor {
     private JCas createVideoView(JCas mainCas, String speechId, Path videoPath) throws Exception {
         JCas videoView = mainCas.createView("video");
 
-        byte[] videoBytes;
+        String base64Video;
         try {
             if (!Files.exists(videoPath, new LinkOption[0])) {
                 throw new IOException("Video file not found: " + String.valueOf(videoPath));
             }
 
-            videoBytes = Files.readAllBytes(videoPath);
+            base64Video = encodeBase64(videoPath);
         } catch (IOException e) {
             logger.error("Failed to read video file: {}", videoPath, e);
             throw new CASException("Video file read error", new Object[]{e});
         }
 
-        String base64Video = Base64.getEncoder().encodeToString(videoBytes);
         DocumentMetaData meta = DocumentMetaData.create(videoView);
         meta.setDocumentId(speechId);
         meta.setDocumentTitle("Video processing for speech: " + speechId);
@@ -164,21 +482,70 @@ public class VideoNLPProcessor {
         return videoView;
     }
 
+    /**
+     * Base64-encodes a file while streaming it from disk. The raw file is never held in memory, but
+     * the String constructor copies the encoded buffer, so for a moment two encoded copies exist:
+     * the peak is about 2.7 times the file size.
+     * @param videoPath the file to encode
+     * @return the Base64 text of the file
+     * @throws IOException if the file cannot be read or is too large for a single sofa string
+     */
+    static String encodeBase64(Path videoPath) throws IOException {
+        long size = Files.size(videoPath);
+        long encodedSize = 4 * ((size + 2) / 3);
+        if (encodedSize > Integer.MAX_VALUE - 8) {
+            throw new IOException("Video file too large to encode: " + videoPath + " (" + size + " bytes)");
+        }
+
+        byte[] encoded = new byte[(int) encodedSize];
+        OutputStream target = new OutputStream() {
+            private int position;
+
+            @Override
+            public void write(int b) {
+                encoded[position++] = (byte) b;
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                System.arraycopy(b, off, encoded, position, len);
+                position += len;
+            }
+        };
+        try (InputStream in = Files.newInputStream(videoPath);
+             OutputStream out = Base64.getEncoder().wrap(target)) {
+            byte[] buffer = new byte[READ_BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+        // Base64 is plain ASCII, so the bytes map one to one onto the characters of the string;
+        // the string gets its own copy, and the buffer becomes garbage once it is built
+        return new String(encoded, StandardCharsets.ISO_8859_1);
+    }
+
     /**
      * Responsible to save processed data to MongoDB
-     * @param mainCas main cas
      * @param speechId speech id
+     * @param videoPath the path of the video, uploaded to GridFS straight from disk
+     * @param contentHash SHA-256 hash of the video, or null without manifest
+     * @param metadata metadata of the transcription
+     * @param audioTrack the audio track sent for transcription, or null if the whole video was sent
+     * @param transcriptWithTimestamps the transcript
      * @throws CASException cas exception
      */
-    private void saveToMongoDB(JCas mainCas, String speechId) throws CASException {
+    private void saveToMongoDB(String speechId, Path videoPath, String contentHash, Document metadata,
+                               Mp4AudioExtractor.AudioTrack audioTrack, Document transcriptWithTimestamps) throws CASException {
         MongoDatabase database = this.dbConnection.getMongoDatabase();
-        GridFSBucket gridFSBucket = GridFSBuckets.create(database, "video1");
-        MongoCollection<Document> collection = database.getCollection("speechTranscripts");
+        GridFSBucket gridFSBucket = GridFSBuckets.create(database, VIDEO_BUCKET);
+        MongoCollection<Document> collection = database.getCollection(TRANSCRIPT_COLLECTION);
 
         try {
-            Document metadata = this.extractVideoMetadata(mainCas);
-            ObjectId videoId = this.storeVideoInGridFS(mainCas, gridFSBucket, speechId);
-            Document transcriptWithTimestamps = this.extractTranscriptWithTimestamps(mainCas, speechId);
+            if (audioTrack != null) {
+                metadata.append("transcribed_audio", audioTrack.toDocument());
+            }
+            ObjectId videoId = this.storeVideoInGridFS(videoPath, gridFSBucket, speechId, contentHash);
             UpdateResult result = collection.updateOne(new Document("_id", speechId),
                     (new Document("$set", (new Document())
                             .append("metadata", metadata)
@@ -187,25 +554,29 @@ public class VideoNLPProcessor {
                             .append("$setOnInsert", new Document("_id", speechId)), (new UpdateOptions())
                             .upsert(true));
             logger.info("Matched {} document(s), modified {} document(s)", result.getMatchedCount(), result.getModifiedCount());
+            if (manifest != null && contentHash != null) {
+                manifest.markProcessed(contentHash, speechId, Files.size(videoPath), videoId.toString());
+            }
         } catch (IOException e) {
             throw new CASException("Error storing data in GridFS", new Object[]{e});
         }
     }
 
-    // helper methods for GridFS storage
-    private ObjectId storeVideoInGridFS(JCas mainCas, GridFSBucket gridFSBucket, String speechId) throws IOException, CASException {
-        JCas videoView = mainCas.getView("video");
-        String base64Data = videoView.getSofaDataString();
-
-        try {
-            byte[] videoData = Base64.getDecoder().decode(base64Data);
-
-            try (InputStream stream = new ByteArrayInputStream(videoData)) {
-                return gridFSBucket.uploadFromStream(speechId + ".mp4", stream);
+    // helper methods for GridFS storage: the file is streamed chunk by chunk, independent of the CAS,
+    // and a content that is already stored is referenced instead of uploaded again; the manifest
+    // reservation makes sure only one job uploads a given content
+    private ObjectId storeVideoInGridFS(Path videoPath, GridFSBucket gridFSBucket, String speechId, String contentHash) throws IOException {
+        GridFSUploadOptions options = new GridFSUploadOptions().chunkSizeBytes(GRIDFS_CHUNK_SIZE);
+        if (contentHash != null) {
+            GridFSFile stored = gridFSBucket.find(new Document("metadata." + VideoManifest.HASH_METADATA_FIELD, contentHash)).first();
+            if (stored != null) {
+                logger.info("Video {} is already stored as {}", speechId, stored.getFilename());
+                return stored.getObjectId();
             }
-        } catch (IllegalArgumentException e) {
-            logger.error("Invalid Base64 data for speech ID: {}", speechId, e);
-            throw new CASException("Invalid video data encoding", new Object[]{e});
+            options.metadata(new Document(VideoManifest.HASH_METADATA_FIELD, contentHash));
+        }
+        try (InputStream stream = new BufferedInputStream(Files.newInputStream(videoPath), GRIDFS_CHUNK_SIZE)) {
+            return gridFSBucket.uploadFromStream(speechId + ".mp4", stream, options);
         }
     }
 
@@ -233,7 +604,7 @@ public class VideoNLPProcessor {
 
         try {
             Document timestampInfo = this.tryExtractTimestamps(transcriptData, fullText);
-            List<Document> sentences = this.segmentTextIntoSentences(fullText);
+            List<Document> sentences = segmentTextIntoSentences(fullText);
             return (new Document())
                     .append("t_Id", "transcript-" + speechId)
                     .append("transcriptText", fullText)
@@ -241,7 +612,7 @@ public class VideoNLPProcessor {
                     .append("segments_with_timeStamps", timestampInfo.get("segments_with_timeStamps"));
         } catch (Exception e) {
             logger.warn("Failed to parse transcript: {}", e.getMessage(), e);
-            List<Document> sentences = this.segmentTextIntoSentences(fullText);
+            List<Document> sentences = segmentTextIntoSentences(fullText);
             return (new Document())
                     .append("t_Id", "transcript-" + speechId)
                     .append("transcriptText", fullText)
@@ -253,7 +624,7 @@ public class VideoNLPProcessor {
     /**
      * Segment text into sentences with begin/end positions
      */
-    private List<Document> segmentTextIntoSentences(String text) {
+    static List<Document> segmentTextIntoSentences(String text) {
         List<Document> sentences = new ArrayList();
         Pattern sentencePattern = Pattern.compile("([^.!?\\s][^.!?]*(?:[.!?](?!['\"]?\\s|$)[^.!?]*)*[.!?]?['\"]?(?=\\s|$))", 8);
         Matcher matcher = sentencePattern.matcher(text);
@@ -292,12 +663,12 @@ public class VideoNLPProcessor {
         // Try different parsing strategies in order of preference
         try {
             //  try JSON parsing
-            return this.parseJsonTranscript(transcriptData);
+            return parseJsonTranscript(transcriptData);
         } catch (Exception var8) {
             try {
                 // Try SRT/WebVTT format if it doesnt start with {
                 if (transcriptData.contains("-->")) {
-                    return this.parseSRTOrVTTFormat(transcriptData, fullText);
+                    return parseSRTOrVTTFormat(transcriptData, fullText);
                 }
             } catch (Exception srtEx) {
                 logger.info("SRT/VTT parsing failed: {}", srtEx.getMessage());
@@ -306,7 +677,7 @@ public class VideoNLPProcessor {
             try {
                 // Try speaker timestamp format
                 if (transcriptData.contains("[") && transcriptData.contains("]")) {
-                    return this.parseSpeakerTimestampFormat(transcriptData, fullText);
+                    return parseSpeakerTimestampFormat(transcriptData, fullText);
                 }
             } catch (Exception spkEx) {
                 logger.info("Speaker timestamp parsing failed: {}", spkEx.getMessage());
@@ -315,21 +686,21 @@ public class VideoNLPProcessor {
             try {
                 // Try line-by-line timestamps
                 if (transcriptData.matches("(?s).*\\d+:\\d+:\\d+.*\\n.*")) {
-                    return this.parseLineByLineTimestamps(transcriptData, fullText);
+                    return parseLineByLineTimestamps(transcriptData, fullText);
                 }
             } catch (Exception lineEx) {
                 logger.info("Line timestamp parsing failed: {}", lineEx.getMessage());
             }
 
             // Final fallback - generate estimated timestamps
-            return this.generateEstimatedTimestamps(fullText);
+            return generateEstimatedTimestamps(fullText);
         }
     }
 
     /**
      * Generate estimated timestamps when no actual timing information is available
      */
-    private Document generateEstimatedTimestamps(String fullText) {
+    static Document generateEstimatedTimestamps(String fullText) {
         List<Document> segments = new ArrayList<>();
         // Split text into approximately equal chunks as a fallback
         // Calculate a rough estimated speaking rate
@@ -368,7 +739,7 @@ public class VideoNLPProcessor {
     /**
      * Original JSON parsing approach
      */
-    private Document parseJsonTranscript(String transcriptData) {
+    static Document parseJsonTranscript(String transcriptData) {
         JSONObject whisperOutput = new JSONObject(transcriptData);
         // Extract the segments which contain timestamp information
         List<Document> segments = new ArrayList();
@@ -414,7 +785,7 @@ public class VideoNLPProcessor {
     /**
      * Parse SRT or WebVTT format (common subtitle formats)
      */
-    private Document parseSRTOrVTTFormat(String rawOutput, String fullText) {
+    static Document parseSRTOrVTTFormat(String rawOutput, String fullText) {
         List<Document> segments = new ArrayList();
         int segmentId = 0;
         // Split by double newline (common separator in SRT/WebVTT)
@@ -441,8 +812,8 @@ public class VideoNLPProcessor {
                             // Extract start and end times
                             String[] parts = timestampLine.split("-->");
                             if (parts.length >= 2) {
-                                double startTime = this.parseTimeToSeconds(parts[0].trim());
-                                double endTime = this.parseTimeToSeconds(parts[1].trim());
+                                double startTime = parseTimeToSeconds(parts[0].trim());
+                                double endTime = parseTimeToSeconds(parts[1].trim());
                                 String text = textBuilder.toString().trim();
                                 segments.add((new Document())
                                         .append("id", segmentId++)
@@ -464,7 +835,7 @@ public class VideoNLPProcessor {
     /**
      * Parse speaker timestamp format: [speaker_0 0.00s - 5.25s] Text
      */
-    private Document parseSpeakerTimestampFormat(String rawOutput, String fullText) {
+    static Document parseSpeakerTimestampFormat(String rawOutput, String fullText) {
         List<Document> segments = new ArrayList();
         int segmentId = 0;
         // Split by newlines to process each line
@@ -485,8 +856,8 @@ public class VideoNLPProcessor {
                             String startStr = timestampPart.substring(0, dashIndex).trim();
                             String endStr = timestampPart.substring(dashIndex + 1).trim();
                             // Extract just the numeric parts with "s" suffix
-                            double startTime = this.extractSeconds(startStr);
-                            double endTime = this.extractSeconds(endStr);
+                            double startTime = extractSeconds(startStr);
+                            double endTime = extractSeconds(endStr);
                             segments.add((new Document()).append("id", segmentId++).append("start", startTime).append("end", endTime).append("text", text));
                         }
                     }
@@ -502,7 +873,7 @@ public class VideoNLPProcessor {
     /**
      * Parse format with timestamps at beginning of each line
      */
-    private Document parseLineByLineTimestamps(String rawOutput, String fullText) {
+    static Document parseLineByLineTimestamps(String rawOutput, String fullText) {
         List<Document> segments = new ArrayList();
         int segmentId = 0;
         // Split by newlines to process each line
@@ -518,7 +889,7 @@ public class VideoNLPProcessor {
                     if (firstSpace > 0) {
                         String timestamp = line.substring(0, firstSpace).trim();
                         String text = line.substring(firstSpace).trim();
-                        double startTime = this.parseTimeToSeconds(timestamp);
+                        double startTime = parseTimeToSeconds(timestamp);
                         // If only start time is given, estimate end time
                         double endTime = startTime + (double)text.length() * 0.06; // Rough estimate based on text length
 
@@ -548,7 +919,7 @@ public class VideoNLPProcessor {
     /**
      * Helper method to parse time formats to seconds
      */
-    private double parseTimeToSeconds(String timeStr) {
+    static double parseTimeToSeconds(String timeStr) {
         timeStr = timeStr.replaceAll("[^0-9:.,]", "").trim();
         // Handle various time formats mit rs
         if (timeStr.matches("\\d+\\.\\d+")) {
@@ -586,7 +957,7 @@ public class VideoNLPProcessor {
     /**
      * Extract seconds value from a string that might contain non-numeric text
      */
-    private double extractSeconds(String str) {
+    static double extractSeconds(String str) {
         // Remove all non-numeric characters except decimal point
         str = str.replaceAll("[^0-9.]", "");
 
@@ -627,51 +998,8 @@ public class VideoNLPProcessor {
                 List<Path> videoFiles = getVideoFilesFromDirectory(videosDir);
                 if (!videoFiles.isEmpty()) {
                     logger.info("Found {} video files to process", videoFiles.size());
-                    AtomicInteger processedCount = new AtomicInteger(0);
-                    int successCount = 0;
-
-                    // Process each video file
-                    for(Path videoPath : videoFiles) {
-                        String filename = videoPath.getFileName().toString();
-
-                        try {
-                            logger.info("Processing video {}/{}: {}", new Object[]
-                                    {processedCount.incrementAndGet(), videoFiles.size(), filename});
-                            // Process with retry logic
-                            int retries = 3;
-                            boolean processed = false;
-
-                            while(retries-- > 0 && !processed) {
-                                try {
-                                    String speechId = processor.processSpeech(videoPath);
-                                    processed = true;
-                                    ++successCount;
-                                    logger.info("Successfully processed: {} with ID: {}",
-                                            filename, speechId);
-                                } catch (Exception e) {
-                                    logger.error("Processing failed for {} ({} retries left): {}",
-                                            new Object[]{filename, retries, e.getMessage()});
-                                    if (retries > 0) {
-                                        Thread.sleep(5000L);
-                                        processor.reinitializePipeline();
-                                    }
-                                }
-                            }
-
-                            if (!processed) {
-                                logger.error("Failed to process {} after multiple attempts", filename);
-                            }
-
-                            // Clean up after each video to prevent memory issues
-                            System.gc();
-                            Thread.sleep(1000L);
-                        } catch (Exception e) {
-                            logger.error("Error processing video file: {}", filename, e);
-                        }
-                    }
-
-                    logger.info("Video processing complete. Successfully processed {}/{} videos",
-                            successCount, videoFiles.size());
+                    // Jobs run concurrently within the memory budget; each retries on its own
+                    new VideoJobScheduler(processor::processSpeech, processor::estimateHeapBytes, config).run(videoFiles);
                     return;
                 }
 
@@ -692,9 +1020,16 @@ public class VideoNLPProcessor {
 
     }
 
+    /**
+     * Recreates all composers. Must not be called while videos are processed; failed calls
+     * already replace their own composer.
+     * @throws Exception if a composer cannot be created
+     */
     public void reinitializePipeline() throws Exception {
-        if (this.composer != null) {
-            this.composer.shutdown();
+        if (this.composers != null) {
+            for (DUUIComposer composer : this.composers) {
+                composer.shutdown();
+            }
         }
 
         // Reset HTTP connection manager
@@ -0,0 +1,127 @@
+package com.myfirstJavalin.nlp;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.impl.XmiCasDeserializer;
+import org.apache.uima.cas.impl.XmiCasSerializer;
+import org.xml.sax.SAXException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Stores every CAS as an XMI file, either plain ({@code <docId>.xmi}) or gzip-compressed
+ * ({@code <docId>.xmi.gz}). Both variants are read directly from their streams, so the
+ * compressed upstream corpus does not have to be unpacked first.
+ * Files are streamed from and to disk instead of being materialized as strings.
+ */
+public class XmiCasStore implements CasStore {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String XMI_EXTENSION = ".xmi";
+    private static final String GZIP_EXTENSION = ".xmi.gz";
+
+    private final Path directory;
+    private final boolean compress;
+
+    public XmiCasStore(Path directory) throws IOException {
+        this(directory, false);
+    }
+
+    /**
+     * Creates an XMI store.
+     *
+     * @param directory directory holding the files
+     * @param compress whether new files are written gzip-compressed
+     * @throws IOException if the directory cannot be created
+     */
+    public XmiCasStore(Path directory, boolean compress) throws IOException {
+        this.directory = directory;
+        this.compress = compress;
+        Files.createDirectories(directory);
+    }
+
+    @Override
+    public boolean exists(String docId) {
+        return Files.exists(plainPath(docId)) || Files.exists(gzipPath(docId));
+    }
+
+    /**
+     * Resolves the stored file, preferring the variant this store writes.
+     */
+    @Override
+    public Path getPath(String docId) {
+        Path preferred = compress ? gzipPath(docId) : plainPath(docId);
+        Path other = compress ? plainPath(docId) : gzipPath(docId);
+        return Files.exists(preferred) || !Files.exists(other) ? preferred : other;
+    }
+
+    @Override
+    public void save(String docId, CAS cas) throws IOException {
+        Path target = compress ? gzipPath(docId) : plainPath(docId);
+        try (OutputStream out = openOutput(target)) {
+            XmiCasSerializer.serialize(cas, out);
+        } catch (SAXException e) {
+            throw new IOException("Failed to serialize XMI for document " + docId, e);
+        }
+
+        // Never leave a stale copy in the other variant behind
+        Files.deleteIfExists(compress ? plainPath(docId) : gzipPath(docId));
+    }
+
+    @Override
+    public void load(String docId, CAS cas) throws IOException {
+        try (InputStream in = openInput(getPath(docId))) {
+            XmiCasDeserializer.deserialize(in, cas);
+        } catch (SAXException e) {
+            throw new IOException("Failed to deserialize XMI for document " + docId, e);
+        }
+    }
+
+    /**
+     * Streams the stored XMI once with {@link XmiInspector}, stopping as soon as
+     * text and metadata are known.
+     */
+    @Override
+    public XmiInspector.Result inspect(String docId) throws IOException {
+        try (InputStream in = openInput(getPath(docId))) {
+            return XmiInspector.inspect(in, false);
+        }
+    }
+
+    /**
+     * Opens a stored XMI file for reading, decompressing {@code .gz} files on the fly.
+     *
+     * @param path the file
+     * @return buffered stream of the XMI content
+     * @throws IOException if the file cannot be opened
+     */
+    public static InputStream openInput(Path path) throws IOException {
+        InputStream in = Files.newInputStream(path);
+        if (path.getFileName().toString().endsWith(".gz")) {
+            in = new GZIPInputStream(in, BUFFER_SIZE);
+        }
+        return new BufferedInputStream(in, BUFFER_SIZE);
+    }
+
+    private static OutputStream openOutput(Path path) throws IOException {
+        OutputStream out = Files.newOutputStream(path);
+        if (path.getFileName().toString().endsWith(".gz")) {
+            out = new GZIPOutputStream(out, BUFFER_SIZE);
+        }
+        return new BufferedOutputStream(out, BUFFER_SIZE);
+    }
+
+    private Path plainPath(String docId) {
+        return directory.resolve(docId + XMI_EXTENSION);
+    }
+
+    private Path gzipPath(String docId) {
+        return directory.resolve(docId + GZIP_EXTENSION);
+    }
+}
@@ -0,0 +1,139 @@
+package com.myfirstJavalin.nlp;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Streaming StAX inspector for XMI files.
+ * Finds the sofa text, language, document metadata and whether sentiment annotations
+ * are present in one pass, holding only the current element in memory, so the annotations
+ * are never built into a CAS. UIMA's XmiCasSerializer writes the cas:Sofa element after the
+ * annotations, so for XMI written by UIMA the pass reads the whole file; it only stops early
+ * for files that put the sofa before the annotations.
+ */
+public class XmiInspector {
+    private static final XMLInputFactory FACTORY = createFactory();
+    private static final String INITIAL_VIEW = "_InitialView";
+    private static final String DEFAULT_LANGUAGE = "de";
+
+    private XmiInspector() {
+    }
+
+    /**
+     * Inspects an XMI stream.
+     *
+     * @param in the XMI content
+     * @param requireAnnotationState if true, keeps reading until a sentiment annotation is found
+     *                               or the document ends; otherwise stops once text and metadata are known
+     *                               (for XMI written by UIMA, at the end of the file, as the sofa comes last)
+     *                               and {@link Result#isAnnotated()} only reflects what was read so far
+     * @return the inspection result
+     * @throws IOException if the stream is not well-formed XML
+     */
+    public static Result inspect(InputStream in, boolean requireAnnotationState) throws IOException {
+        Result result = new Result();
+        XMLStreamReader reader = null;
+        try {
+            reader = FACTORY.createXMLStreamReader(in);
+            while (reader.hasNext()) {
+                if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+                    continue;
+                }
+
+                String element = reader.getLocalName();
+                if ("Sofa".equals(element)) {
+                    String sofaId = reader.getAttributeValue(null, "sofaID");
+                    if (INITIAL_VIEW.equals(sofaId) || sofaId == null && result.text == null) {
+                        result.text = reader.getAttributeValue(null, "sofaString");
+                    }
+                } else if ("DocumentMetaData".equals(element)) {
+                    result.metadataFound = true;
+                    result.documentId = reader.getAttributeValue(null, "documentId");
+                    result.documentTitle = reader.getAttributeValue(null, "documentTitle");
+                    result.collectionId = reader.getAttributeValue(null, "collectionId");
+                    readLanguage(reader, result);
+                } else if ("DocumentAnnotation".equals(element)) {
+                    readLanguage(reader, result);
+                } else if (element.endsWith("Sentiment")) {
+                    result.annotated = true;
+                }
+
+                if (result.isComplete(requireAnnotationState)) {
+                    break;
+                }
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Failed to inspect XMI: " + e.getMessage(), e);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException ignored) {
+                    // nothing left to release
+                }
+            }
+        }
+        return result;
+    }
+
+    private static void readLanguage(XMLStreamReader reader, Result result) {
+        String language = reader.getAttributeValue(null, "language");
+        if (language != null && !language.isEmpty() && !"x-unspecified".equals(language)) {
+            result.language = language;
+        }
+    }
+
+    private static XMLInputFactory createFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        return factory;
+    }
+
+    /**
+     * What the inspector found in an XMI file.
+     */
+    public static class Result {
+        private String text;
+        private String language;
+        private String documentId;
+        private String documentTitle;
+        private String collectionId;
+        private boolean metadataFound;
+        private boolean annotated;
+
+        private boolean isComplete(boolean requireAnnotationState) {
+            boolean textAndMetadata = text != null && metadataFound;
+            return requireAnnotationState ? textAndMetadata && annotated : textAndMetadata;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public String getLanguage() {
+            return language != null ? language : DEFAULT_LANGUAGE;
+        }
+
+        public String getDocumentId() {
+            return documentId;
+        }
+
+        public String getDocumentTitle() {
+            return documentTitle;
+        }
+
+        public String getCollectionId() {
+            return collectionId;
+        }
+
+        public boolean isAnnotated() {
+            return annotated;
+        }
+    }
+}